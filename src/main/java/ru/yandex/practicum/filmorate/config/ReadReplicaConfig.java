@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Разделение чтения и записи. Включается заданием filmorate.datasource.replica.url:
+ * основная база настраивается как обычно через spring.datasource, реплика — через
+ * filmorate.datasource.replica. Без URL реплики используется стандартный DataSource.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty("filmorate.datasource.replica.url")
+public class ReadReplicaConfig {
+    @Value("${filmorate.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${filmorate.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${filmorate.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    // Не участвует в автосвязывании: все компоненты получают ленивый прокси ниже
+    @Bean(autowireCandidate = false)
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties primaryProperties) {
+        DataSource primary = primaryProperties.initializeDataSourceBuilder().build();
+        DataSource replica = DataSourceBuilder.create()
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        log.info("Чтение направляется на реплику {}", replicaUrl);
+        return new ReadWriteRoutingDataSource(primary, replica);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryProperties) {
+        return new LazyConnectionDataSourceProxy(routingDataSource(primaryProperties));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Направляет соединения транзакций только для чтения на реплику, остальные — на основную базу.
+ * Решение принимается при получении соединения, поэтому источник должен быть обёрнут
+ * в LazyConnectionDataSourceProxy: иначе соединение берётся до установки признака readOnly.
+ * Чтения, которым нельзя отставать от записи, выполняются через onPrimary.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong replicaConnections = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Выполняет действие на основной базе, даже если внутри открываются транзакции только для чтения.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && FORCE_PRIMARY.get() == null) {
+            replicaConnections.incrementAndGet();
+            log.debug("Соединение для чтения: реплика");
+            return Route.REPLICA;
+        }
+        primaryConnections.incrementAndGet();
+        log.debug("Соединение для записи: основная база");
+        return Route.PRIMARY;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "primaryConnections", primaryConnections.get(),
+                "replicaConnections", replicaConnections.get()
+        );
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource target : new DataSource[]{replica, primary}) {
+            if (target instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
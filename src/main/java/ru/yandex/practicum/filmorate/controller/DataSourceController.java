@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.config.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/datasource")
+@RequiredArgsConstructor
+public class DataSourceController {
+    private final DataSource dataSource;
+
+    // Без настроенной реплики все соединения идут на основную базу и счётчиков нет
+    @GetMapping("/stats")
+    public Map<String, Object> getRoutingStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (dataSource instanceof LazyConnectionDataSourceProxy proxy
+                && proxy.getTargetDataSource() instanceof ReadWriteRoutingDataSource routing) {
+            result.put("replicaEnabled", true);
+            result.putAll(routing.getStats());
+        } else {
+            result.put("replicaEnabled", false);
+        }
+        return result;
+    }
+}
@@ -1,16 +1,30 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.model.ValidationGroups;
+import ru.yandex.practicum.filmorate.storage.film.PopularityFilter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/films")
@@ -18,7 +32,12 @@ import java.util.List;
 @Validated
 @RequiredArgsConstructor
 public class FilmController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_FLUSH_EVERY = 1000;
+
     private final FilmService filmService;
+    private final FilmBatchService filmBatchService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Validated(ValidationGroups.Create.class)
@@ -27,6 +46,12 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<FilmBatchResult> createFilms(InputStream body) {
+        log.info("Пакетная загрузка фильмов");
+        return filmBatchService.importFilms(body);
+    }
+
     @PutMapping
     @Validated(ValidationGroups.Update.class)
     public Film updateFilm(@Valid @RequestBody Film film) {
@@ -39,23 +64,93 @@ public class FilmController {
         return filmService.getById(id);
     }
 
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteFilm(@PathVariable int id) {
+        filmService.delete(id);
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return filmService.getCacheStats();
+    }
+
+    @GetMapping("/likes/stats")
+    public Map<String, Object> getLikeWriteStats() {
+        return filmService.getLikeWriteStats();
+    }
+
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.getAll();
+    public ResponseEntity<? extends Collection<Film>> getAllFilms(@RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAll());
+        }
+        int pageSize = limit != null ? limit : PageCursor.DEFAULT_LIMIT;
+        List<Film> page = filmService.getPage(PageCursor.decode(after), pageSize);
+        return PageCursor.toResponse(page, pageSize, Film::getId);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                filmService.streamAll(film -> {
+                    try {
+                        generator.writeObject(film);
+                        generator.writeRaw('\n');
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                log.info("Выгружено фильмов в NDJSON: {}", written[0]);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@PathVariable int id, @PathVariable int userId) {
-        filmService.addLike(id, userId);
+    public ResponseEntity<Void> addLike(@PathVariable int id, @PathVariable int userId) {
+        return likeResponse(filmService.addLike(id, userId));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void removeLike(@PathVariable int id, @PathVariable int userId) {
-        filmService.removeLike(id, userId);
+    public ResponseEntity<Void> removeLike(@PathVariable int id, @PathVariable int userId) {
+        return likeResponse(filmService.removeLike(id, userId));
+    }
+
+    // При асинхронной записи лайк принят, но ещё не записан
+    private ResponseEntity<Void> likeResponse(boolean queued) {
+        return queued ? ResponseEntity.accepted().build() : ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return filmService.search(q, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<FilmSuggestion> autocomplete(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        return filmService.autocomplete(prefix, limit);
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilar(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getSimilar(id, limit);
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopular(count);
+    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count,
+                                 @RequestParam(defaultValue = "0") int offset,
+                                 @RequestParam(required = false) Integer genreId,
+                                 @RequestParam(required = false) Integer mpaId,
+                                 @RequestParam(required = false) Integer year) {
+        return filmService.getPopular(count, offset, new PopularityFilter(genreId, mpaId, year));
     }
 }
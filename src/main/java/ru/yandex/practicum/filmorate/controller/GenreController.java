@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
 import java.util.List;
 
@@ -11,15 +11,15 @@ import java.util.List;
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class GenreController {
-    private final GenreDbStorage genreDbStorage;
+    private final ReferenceDataRegistry referenceData;
 
     @GetMapping
     public List<Genre> getAllGenres() {
-        return genreDbStorage.getAllGenres();
+        return referenceData.getAllGenres();
     }
 
     @GetMapping("/{id}")
     public Genre getGenreById(@PathVariable int id) {
-        return genreDbStorage.getGenreById(id);
+        return referenceData.getGenre(id);
     }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
 import java.util.List;
 
@@ -11,15 +11,15 @@ import java.util.List;
 @RequestMapping("/mpa")
 @RequiredArgsConstructor
 public class MpaController {
-    private final MpaDbStorage mpaDbStorage;
+    private final ReferenceDataRegistry referenceData;
 
     @GetMapping
     public List<Mpa> getAllMpa() {
-        return mpaDbStorage.getAllMpa();
+        return referenceData.getAllMpa();
     }
 
     @GetMapping("/{id}")
     public Mpa getMpaById(@PathVariable int id) {
-        return mpaDbStorage.getMpaById(id);
+        return referenceData.getMpa(id);
     }
 }
\ No newline at end of file
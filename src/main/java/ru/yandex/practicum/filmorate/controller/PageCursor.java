@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации. Внутри — ID последнего
+ * элемента страницы, клиент передаёт его обратно в параметре after.
+ */
+final class PageCursor {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 100;
+
+    private static final String PREFIX = "id:";
+
+    private PageCursor() {
+    }
+
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(value);
+            }
+            return Integer.parseInt(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор страницы: " + cursor);
+        }
+    }
+
+    static String encode(int id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(List<T> page, int limit, ToIntFunction<T> idExtractor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, encode(idExtractor.applyAsInt(page.getLast())));
+        }
+        return response.body(page);
+    }
+}
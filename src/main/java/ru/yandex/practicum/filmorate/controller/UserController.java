@@ -1,28 +1,41 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.model.ValidationGroups;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.OptionalInt;
 
 @RestController
 @RequestMapping("/users")
 @Slf4j
 @Validated
 public class UserController {
+    private static final int STREAM_FLUSH_EVERY = 1000;
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -44,9 +57,25 @@ public class UserController {
         return userService.getById(id);
     }
 
+    @GetMapping("/by-login/{login}")
+    public User getUserByLogin(@PathVariable String login) {
+        return userService.getByLogin(login);
+    }
+
+    @GetMapping("/by-email/{email}")
+    public User getUserByEmail(@PathVariable String email) {
+        return userService.getByEmail(email);
+    }
+
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAll();
+    public ResponseEntity<? extends Collection<User>> getAllUsers(@RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAll());
+        }
+        int pageSize = limit != null ? limit : PageCursor.DEFAULT_LIMIT;
+        List<User> page = userService.getPage(PageCursor.decode(after), pageSize);
+        return PageCursor.toResponse(page, pageSize, User::getId);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -60,11 +89,81 @@ public class UserController {
         userService.removeFriend(id, friendId);
     }
 
+    @PutMapping("/{id}/friends/requests/{requesterId}")
+    public void acceptFriendRequest(@PathVariable int id, @PathVariable int requesterId) {
+        userService.acceptFriendRequest(id, requesterId);
+    }
+
+    @DeleteMapping("/{id}/friends/requests/{requesterId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void declineFriendRequest(@PathVariable int id, @PathVariable int requesterId) {
+        userService.declineFriendRequest(id, requesterId);
+    }
+
     @GetMapping("/{id}/friends")
     public List<User> getFriends(@PathVariable int id) {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/feed")
+    public List<Film> getFeed(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        return userService.getFeed(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        return userService.getRecommendations(id, limit);
+    }
+
+    // Страница лайков пишется в ответ прямо из курсора базы; курсор следующей страницы
+    // вычисляется заранее по индексу, потому что заголовки уходят раньше тела
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<StreamingResponseBody> getLikedFilms(@PathVariable int id,
+                                                               @RequestParam(required = false) String after,
+                                                               @RequestParam(required = false) Integer limit) {
+        int afterId = PageCursor.decode(after);
+        int pageSize = limit != null ? limit : PageCursor.DEFAULT_LIMIT;
+        OptionalInt lastId = userService.getLikedFilmsPageEnd(id, afterId, pageSize);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                int[] written = {0};
+                userService.streamLikedFilms(id, afterId, lastId.orElse(Integer.MAX_VALUE), pageSize, film -> {
+                    try {
+                        generator.writeObject(film);
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        lastId.ifPresent(last -> response.header(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(last)));
+        return response.body(body);
+    }
+
+    @GetMapping("/{id}/likes/common/{otherId}")
+    public List<Film> getCommonLikedFilms(@PathVariable int id, @PathVariable int otherId) {
+        return userService.getCommonLikedFilms(id, otherId);
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public List<User> getFriendPath(@PathVariable int id, @PathVariable int otherId,
+                                    @RequestParam(defaultValue = "6") int maxDepth) {
+        return userService.getFriendPath(id, otherId, maxDepth);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         return userService.getCommonFriends(id, otherId);
@@ -39,6 +39,8 @@ public class Film {
     @Builder.Default
     private Set<Integer> likes = new HashSet<>();
 
+    private Integer likesCount;
+
     public void setLikes(Set<Integer> likes) {
         this.likes = likes;
     }
@@ -52,6 +54,9 @@ public class Film {
     }
 
     public int getLikesCount() {
+        if (likesCount != null) {
+            return likesCount;
+        }
         return likes != null ? likes.size() : 0;
     }
 
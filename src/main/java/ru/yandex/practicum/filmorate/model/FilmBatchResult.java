@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FilmBatchResult {
+    private int index;
+    private Integer id;
+    private Status status;
+    private String error;
+
+    public static FilmBatchResult created(int index, int id) {
+        return new FilmBatchResult(index, id, Status.CREATED, null);
+    }
+
+    public static FilmBatchResult failed(int index, String error) {
+        return new FilmBatchResult(index, null, Status.FAILED, error);
+    }
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
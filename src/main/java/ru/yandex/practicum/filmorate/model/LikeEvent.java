@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.model;
+
+public record LikeEvent(int filmId, int userId, boolean liked) {
+}
@@ -0,0 +1,395 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.TextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Автодополнение названий фильмов: сжатое префиксное дерево (метка ребра — строка, узлы с одним потомком
+ * без своих фильмов сливаются) над нормализованными названиями. Каждый узел хранит до MAX_COMPLETIONS
+ * лучших фильмов своего поддерева по лайкам, поэтому ответ — спуск по префиксу и копия массива.
+ * Узлы неизменяемы: изменение копирует только путь до названия фильма и публикует новый корень,
+ * поэтому чтение подсказок не берёт блокировок и видит согласованный снимок дерева.
+ * Лайки применяются лениво: фильм помечается изменённым, а счётчики перечитываются пакетом
+ * по расписанию (filmorate.autocomplete.refresh-interval); общие узлы путей пакета пересчитываются один раз.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmAutocompleteIndex {
+    public static final int MAX_COMPLETIONS = 20;
+    private static final int[] EMPTY = new int[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final char[] NO_FIRSTS = new char[0];
+    private static final Node EMPTY_ROOT = new Node("", NO_FIRSTS, NO_CHILDREN, EMPTY, EMPTY);
+
+    private final FilmStorage filmStorage;
+    // keys и likes меняются и читаются только под монитором индекса
+    private final Map<Integer, String> keys = new HashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> likes = new HashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final Object refreshLock = new Object();
+    private volatile Node root = EMPTY_ROOT;
+
+    // Больше лайков — выше, при равенстве выше более новый фильм, как в рейтинге популярных
+    private final Comparator<Integer> rankOrder = (left, right) -> {
+        int byLikes = Integer.compare(likes.getOrDefault(right, 0), likes.getOrDefault(left, 0));
+        return byLikes != 0 ? byLikes : Integer.compare(right, left);
+    };
+
+    private static final class Node {
+        private final String label;
+        // Первые символы меток потомков по возрастанию, для двоичного поиска
+        private final char[] firsts;
+        private final Node[] children;
+        // Фильмы, нормализованное название которых заканчивается в этом узле
+        private final int[] films;
+        private final int[] top;
+
+        private Node(String label, char[] firsts, Node[] children, int[] films, int[] top) {
+            this.label = label;
+            this.firsts = firsts;
+            this.children = children;
+            this.films = films;
+            this.top = top;
+        }
+
+        private int childIndex(char first) {
+            return Arrays.binarySearch(firsts, first);
+        }
+
+        private Node withLabel(String newLabel) {
+            return new Node(newLabel, firsts, children, films, top);
+        }
+
+        private Node withFilms(int[] newFilms) {
+            return new Node(label, firsts, children, newFilms, top);
+        }
+
+        private Node withTop(int[] newTop) {
+            return new Node(label, firsts, children, films, newTop);
+        }
+
+        // Первый символ метки нового потомка совпадает с прежним
+        private Node withChildren(Node[] newChildren) {
+            return new Node(label, firsts, newChildren, films, top);
+        }
+
+        private Node withChild(int index, Node child) {
+            Node[] newChildren = children.clone();
+            newChildren[index] = child;
+            return withChildren(newChildren);
+        }
+
+        private Node withInsertedChild(int index, Node child) {
+            char[] newFirsts = new char[firsts.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newFirsts[index] = child.label.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(firsts, index, newFirsts, index + 1, firsts.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Node(label, newFirsts, newChildren, films, top);
+        }
+
+        private Node withoutChild(int index) {
+            char[] newFirsts = new char[firsts.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(firsts, index + 1, newFirsts, index, firsts.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Node(label, newFirsts, newChildren, films, top);
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        synchronized (refreshLock) {
+            dirty.clear();
+            synchronized (this) {
+                keys.clear();
+                names.clear();
+                likes.clear();
+                Node[] building = {EMPTY_ROOT};
+                filmStorage.streamAll(film -> {
+                    String key = TextNormalizer.normalize(film.getName());
+                    keys.put(film.getId(), key);
+                    names.put(film.getId(), film.getName());
+                    likes.put(film.getId(), film.getLikesCount());
+                    building[0] = insert(building[0], key, 0, film.getId(), false);
+                });
+                // Кэши считаются один раз после вставки всех названий, а не на каждую вставку
+                root = computeTops(building[0]);
+            }
+        }
+        log.info("Индекс автодополнения построен: {} фильмов, {} мс",
+                keys.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Добавляет фильм или применяет изменение его названия.
+     */
+    public synchronized void index(Film film) {
+        int filmId = film.getId();
+        String key = TextNormalizer.normalize(film.getName());
+        String previous = keys.put(filmId, key);
+        names.put(filmId, film.getName());
+        if (key.equals(previous)) {
+            return;
+        }
+        likes.putIfAbsent(filmId, film.getLikesCount());
+        Node updated = root;
+        if (previous != null) {
+            updated = deleteFromRoot(updated, previous, filmId);
+        }
+        root = insert(updated, key, 0, filmId, true);
+    }
+
+    public synchronized void remove(int filmId) {
+        String key = keys.remove(filmId);
+        if (key == null) {
+            return;
+        }
+        root = deleteFromRoot(root, key, filmId);
+        names.remove(filmId);
+        likes.remove(filmId);
+    }
+
+    // Счётчик лайков фильма изменился; кэши обновятся при следующем пакетном пересчёте по расписанию,
+    // чтобы запрос с лайком не ждал обращения к БД и пересчёта дерева
+    public void markDirty(int filmId) {
+        dirty.add(filmId);
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.autocomplete.refresh-interval:PT5S}",
+            fixedDelayString = "${filmorate.autocomplete.refresh-interval:PT5S}")
+    public void refresh() {
+        synchronized (refreshLock) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            List<Integer> filmIds = new ArrayList<>(dirty);
+            dirty.removeAll(filmIds);
+
+            // Счётчики читаются одним запросом вне блокировки индекса
+            Map<Integer, Integer> counts = new HashMap<>(filmIds.size() * 2);
+            filmStorage.getByIds(filmIds).forEach(film -> counts.put(film.getId(), film.getLikesCount()));
+
+            synchronized (this) {
+                List<String> changed = new ArrayList<>();
+                counts.forEach((filmId, count) -> {
+                    String key = keys.get(filmId);
+                    Integer previous = likes.get(filmId);
+                    if (key == null || previous == null || previous.equals(count)) {
+                        return;
+                    }
+                    likes.put(filmId, count);
+                    changed.add(key);
+                });
+                if (!changed.isEmpty()) {
+                    root = retop(root, 0, changed);
+                }
+                log.debug("Лайки применены к автодополнению: {} фильмов, изменилось {}",
+                        filmIds.size(), changed.size());
+            }
+        }
+    }
+
+    /**
+     * До limit фильмов, нормализованное название которых начинается с префикса, по убыванию лайков.
+     */
+    public List<FilmSuggestion> complete(String prefix, int limit) {
+        String key = TextNormalizer.normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        int offset = 0;
+        while (offset < key.length()) {
+            int index = node.childIndex(key.charAt(offset));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, offset);
+            // Префикс может закончиться посреди метки ребра
+            if (common < child.label.length() && offset + common < key.length()) {
+                return List.of();
+            }
+            node = child;
+            offset += common;
+        }
+
+        int count = Math.min(limit, node.top.length);
+        List<FilmSuggestion> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int filmId = node.top[i];
+            // Снимок дерева может ещё содержать фильм, удалённый после его чтения
+            String name = names.get(filmId);
+            if (name != null) {
+                result.add(new FilmSuggestion(filmId, name));
+            }
+        }
+        return result;
+    }
+
+    // Возвращает копию узла с добавленным фильмом; ranked — пересчитывать ли кэши на пути
+    private Node insert(Node node, String key, int offset, int filmId, boolean ranked) {
+        Node updated;
+        if (offset == key.length()) {
+            updated = node.withFilms(append(node.films, filmId));
+        } else {
+            int index = node.childIndex(key.charAt(offset));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(offset), NO_FIRSTS, NO_CHILDREN, new int[]{filmId}, EMPTY);
+                updated = node.withInsertedChild(-index - 1, ranked ? ranked(leaf) : leaf);
+            } else {
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, key, offset);
+                if (common < child.label.length()) {
+                    // Ребро делится: общая часть метки становится промежуточным узлом
+                    Node rest = child.withLabel(child.label.substring(common));
+                    child = new Node(child.label.substring(0, common), new char[]{rest.label.charAt(0)},
+                            new Node[]{rest}, EMPTY, rest.top);
+                }
+                updated = node.withChild(index, insert(child, key, offset + common, filmId, ranked));
+            }
+        }
+        return ranked ? ranked(updated) : updated;
+    }
+
+    // Корень не удаляется, даже если в дереве не осталось фильмов
+    private Node deleteFromRoot(Node node, String key, int filmId) {
+        Node updated = delete(node, key, 0, filmId);
+        return updated != null ? updated : EMPTY_ROOT;
+    }
+
+    // Возвращает копию узла без фильма или null, если узел опустел и его нужно удалить у родителя
+    private Node delete(Node node, String key, int offset, int filmId) {
+        Node updated;
+        if (offset == key.length()) {
+            updated = node.withFilms(without(node.films, filmId));
+        } else {
+            int index = node.childIndex(key.charAt(offset));
+            Node child = index >= 0 ? node.children[index] : null;
+            if (child == null || !key.startsWith(child.label, offset)) {
+                return node;
+            }
+            Node replaced = delete(child, key, offset + child.label.length(), filmId);
+            if (replaced == null) {
+                updated = node.withoutChild(index);
+            } else {
+                if (replaced.films.length == 0 && replaced.children.length == 1) {
+                    // Узел без своих фильмов с единственным потомком сливается с ним
+                    Node grandchild = replaced.children[0];
+                    replaced = grandchild.withLabel(replaced.label + grandchild.label);
+                }
+                updated = node.withChild(index, replaced);
+            }
+        }
+        if (updated.films.length == 0 && updated.children.length == 0) {
+            return null;
+        }
+        return ranked(updated);
+    }
+
+    // Пересчитывает кэши узлов на путях к ключам; общий узел нескольких путей пересчитывается один раз,
+    // потомки — раньше предков
+    private Node retop(Node node, int offset, List<String> pathKeys) {
+        Map<Integer, List<String>> byChild = new HashMap<>();
+        for (String key : pathKeys) {
+            if (offset == key.length()) {
+                continue;
+            }
+            int index = node.childIndex(key.charAt(offset));
+            if (index >= 0 && key.startsWith(node.children[index].label, offset)) {
+                byChild.computeIfAbsent(index, i -> new ArrayList<>()).add(key);
+            }
+        }
+        Node[] children = node.children;
+        if (!byChild.isEmpty()) {
+            children = children.clone();
+            for (Map.Entry<Integer, List<String>> entry : byChild.entrySet()) {
+                Node child = children[entry.getKey()];
+                children[entry.getKey()] = retop(child, offset + child.label.length(), entry.getValue());
+            }
+        }
+        return ranked(node.withChildren(children));
+    }
+
+    private Node computeTops(Node node) {
+        Node[] children = new Node[node.children.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = computeTops(node.children[i]);
+        }
+        return ranked(node.withChildren(children));
+    }
+
+    // Лучшие фильмы узла выбираются из его собственных фильмов и кэшей потомков
+    private Node ranked(Node node) {
+        if (node.children.length == 0 && node.films.length == 1) {
+            return node.withTop(node.films);
+        }
+        int total = node.films.length;
+        for (Node child : node.children) {
+            total += child.top.length;
+        }
+        Integer[] candidates = new Integer[total];
+        int size = 0;
+        for (int filmId : node.films) {
+            candidates[size++] = filmId;
+        }
+        for (Node child : node.children) {
+            for (int filmId : child.top) {
+                candidates[size++] = filmId;
+            }
+        }
+        Arrays.sort(candidates, rankOrder);
+
+        int[] top = new int[Math.min(total, MAX_COMPLETIONS)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = candidates[i];
+        }
+        return node.withTop(top);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] append(int[] films, int filmId) {
+        int[] result = Arrays.copyOf(films, films.length + 1);
+        result[films.length] = filmId;
+        return result;
+    }
+
+    private static int[] without(int[] films, int filmId) {
+        for (int i = 0; i < films.length; i++) {
+            if (films[i] == filmId) {
+                int[] result = new int[films.length - 1];
+                System.arraycopy(films, 0, result, 0, i);
+                System.arraycopy(films, i + 1, result, i, films.length - i - 1);
+                return result;
+            }
+        }
+        return films;
+    }
+}
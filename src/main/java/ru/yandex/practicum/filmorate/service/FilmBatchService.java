@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ValidationGroups;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетная загрузка фильмов. Массив читается потоково, фильмы проверяются и
+ * сохраняются порциями по chunkSize — каждая порция в отдельной транзакции.
+ * Элемент, который не удалось преобразовать в фильм, получает статус FAILED, загрузка продолжается.
+ * Если порция не сохранилась, FAILED получают только её элементы: уже сохранённые порции
+ * остаются в ответе со статусом CREATED, а загрузка переходит к следующей порции.
+ */
+@Slf4j
+@Service
+public class FilmBatchService {
+    private final FilmService filmService;
+    private final ReferenceDataRegistry referenceData;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public FilmBatchService(FilmService filmService,
+                            ReferenceDataRegistry referenceData,
+                            ObjectMapper objectMapper,
+                            Validator validator,
+                            @Value("${filmorate.films.batch.chunk-size:500}") int chunkSize) {
+        this.filmService = filmService;
+        this.referenceData = referenceData;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<FilmBatchResult> importFilms(InputStream body) {
+        long startedAt = System.nanoTime();
+        List<FilmBatchResult> results = new ArrayList<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("Ожидается JSON-массив фильмов");
+            }
+
+            Map<Integer, Film> chunk = new LinkedHashMap<>();
+            int index = 0;
+            while (true) {
+                // Синтаксическая ошибка не позволяет найти следующий элемент: чтение останавливается,
+                // а уже сохранённые порции и остаток текущей попадают в ответ
+                JsonNode element;
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    if (token == null) {
+                        throw new JsonParseException(parser, "Неожиданный конец массива");
+                    }
+                    element = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    log.warn("Невалидный JSON в пакетной загрузке на элементе {}: {}", index, e.getOriginalMessage());
+                    results.add(FilmBatchResult.failed(index, "Невалидный JSON: " + e.getOriginalMessage()));
+                    break;
+                }
+
+                String error;
+                Film film = null;
+                try {
+                    film = objectMapper.treeToValue(element, Film.class);
+                    error = validate(film);
+                } catch (JsonProcessingException e) {
+                    error = "Некорректный фильм: " + e.getOriginalMessage();
+                }
+                if (error != null) {
+                    results.add(FilmBatchResult.failed(index, error));
+                } else {
+                    chunk.put(index, film);
+                }
+                index++;
+
+                if (chunk.size() == chunkSize) {
+                    results.addAll(saveChunk(chunk));
+                    chunk.clear();
+                }
+            }
+            results.addAll(saveChunk(chunk));
+        } catch (JsonProcessingException e) {
+            log.warn("Невалидный JSON в пакетной загрузке: {}", e.getOriginalMessage());
+            throw new ValidationException("Невалидный JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new ValidationException("Не удалось прочитать тело запроса");
+        }
+
+        results.sort(Comparator.comparingInt(FilmBatchResult::getIndex));
+        log.info("Пакетная загрузка: обработано {} фильмов за {} мс", results.size(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+        return results;
+    }
+
+    private List<FilmBatchResult> saveChunk(Map<Integer, Film> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+
+        List<FilmBatchResult> results = new ArrayList<>(chunk.size());
+        List<Film> films;
+        try {
+            films = filmService.createAll(new ArrayList<>(chunk.values()));
+        } catch (DataAccessException e) {
+            String error = "Не удалось сохранить фильм: " + e.getMostSpecificCause().getMessage();
+            log.warn("Порция из {} фильмов не сохранена: {}", chunk.size(), e.getMostSpecificCause().getMessage());
+            for (Integer index : chunk.keySet()) {
+                results.add(FilmBatchResult.failed(index, error));
+            }
+            return results;
+        }
+        Iterator<Film> created = films.iterator();
+        for (Integer index : chunk.keySet()) {
+            results.add(FilmBatchResult.created(index, created.next().getId()));
+        }
+        return results;
+    }
+
+    // Справочники проверяются в памяти, поэтому валидация порции не обращается к БД
+    private String validate(Film film) {
+        Set<ConstraintViolation<Film>> violations =
+                validator.validate(film, Default.class, ValidationGroups.Create.class);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        try {
+            film.setMpa(referenceData.getMpa(film.getMpa().getId()));
+            if (film.getGenres() != null) {
+                Set<Integer> genreIds = film.getGenres().stream()
+                        .map(Genre::getId)
+                        .collect(Collectors.toSet());
+                Set<Integer> missingIds = referenceData.findMissingGenreIds(genreIds);
+                if (!missingIds.isEmpty()) {
+                    return "Жанры с id=" + missingIds + " не найдены";
+                }
+                film.setGenres(film.getGenres().stream()
+                        .map(genre -> referenceData.getGenre(genre.getId()))
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+            }
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Кэш фильмов по ID. Caffeine использует вытеснение W-TinyLFU: редкие обращения
+ * (например, обход всего каталога) не вытесняют часто запрашиваемые фильмы.
+ */
+@Slf4j
+@Component
+public class FilmCache {
+    private final Cache<Integer, Film> cache;
+
+    public FilmCache(@Value("${filmorate.film-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${filmorate.film-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        log.info("Кэш фильмов: размер {}, время жизни {}", maximumSize, ttl);
+    }
+
+    public Film get(int id, Function<Integer, Film> loader) {
+        return cache.get(id, loader);
+    }
+
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.RecentLikes;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.util.IntIntCounter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Лента «нравится друзьям»: фильмы из последних лайков друзей, по числу друзей, которым они
+ * понравились, при равенстве — по свежести лайка. Лента собирается при чтении: последние лайки
+ * каждого друга сливаются k-путевым слиянием через кучу, пока не наберётся окно событий.
+ */
+@Slf4j
+@Service
+public class FilmFeedService {
+    public static final int MAX_FEED_SIZE = 100;
+
+    // Сколько последних лайков берётся у каждого друга и сколько событий учитывается всего
+    private static final int LIKES_PER_FRIEND = 50;
+    private static final int FEED_WINDOW = 1000;
+
+    private final FilmStorage filmStorage;
+    private final FriendGraph friendGraph;
+    private final Cache<Integer, int[]> cache;
+
+    public FilmFeedService(FilmStorage filmStorage,
+                           FriendGraph friendGraph,
+                           @Value("${filmorate.feed.cache.maximum-size:10000}") long maximumSize,
+                           @Value("${filmorate.feed.cache.ttl:5m}") Duration ttl) {
+        this.filmStorage = filmStorage;
+        this.friendGraph = friendGraph;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public List<Film> getFeed(int userId, int limit) {
+        int[] ranked = cache.get(userId, this::rank);
+        return filmStorage.getByIds(Arrays.stream(ranked).limit(limit).boxed().toList());
+    }
+
+    // Лайк пользователя меняет ленты всех, у кого он в друзьях
+    public void invalidateLiker(int userId) {
+        for (int followerId : friendGraph.getFollowers(userId)) {
+            cache.invalidate(followerId);
+        }
+    }
+
+    // Изменился список друзей пользователя
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+    }
+
+    // Массовый импорт меняет граф целиком
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private int[] rank(int userId) {
+        List<RecentLikes> lists = filmStorage.getRecentLikes(friendGraph.getFriends(userId), LIKES_PER_FRIEND);
+
+        // В куче — по одному курсору на друга, сверху самый свежий лайк
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> Long.compare(lists.get(b[0]).likedAt()[b[1]], lists.get(a[0]).likedAt()[a[1]]));
+        for (int i = 0; i < lists.size(); i++) {
+            heap.add(new int[]{i, 0});
+        }
+
+        IntIntCounter friendsPerFilm = new IntIntCounter(256);
+        int[] filmsByRecency = new int[64];
+        int distinctFilms = 0;
+        for (int events = 0; events < FEED_WINDOW && !heap.isEmpty(); events++) {
+            int[] cursor = heap.poll();
+            int filmId = lists.get(cursor[0]).filmIds()[cursor[1]];
+            if (friendsPerFilm.get(filmId) == 0) {
+                if (distinctFilms == filmsByRecency.length) {
+                    filmsByRecency = Arrays.copyOf(filmsByRecency, distinctFilms * 2);
+                }
+                filmsByRecency[distinctFilms++] = filmId;
+            }
+            friendsPerFilm.increment(filmId);
+            if (++cursor[1] < lists.get(cursor[0]).filmIds().length) {
+                heap.add(cursor);
+            }
+        }
+
+        // Число друзей в старших битах, позиция по свежести — в младших
+        long[] packed = new long[distinctFilms];
+        for (int i = 0; i < distinctFilms; i++) {
+            packed[i] = ((long) friendsPerFilm.get(filmsByRecency[i]) << 32) | (Integer.MAX_VALUE - i);
+        }
+        Arrays.sort(packed);
+        int[] ranked = new int[Math.min(MAX_FEED_SIZE, distinctFilms)];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = filmsByRecency[Integer.MAX_VALUE - (int) packed[distinctFilms - 1 - i]];
+        }
+        log.debug("Лента пользователя {}: {} друзей с лайками, {} фильмов", userId, lists.size(), distinctFilms);
+        return ranked;
+    }
+}
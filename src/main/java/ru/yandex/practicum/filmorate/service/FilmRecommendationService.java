@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntIntCounter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Рекомендации фильмов по схожести фильмов (item-based): кандидаты — фильмы, которые лайкали вместе
+ * с фильмами пользователя, упорядоченные по сумме совместных лайков, при равенстве — по возрастанию ID.
+ * Оценка читает только строки матрицы для фильмов пользователя.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmRecommendationService {
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private final FilmLikeMatrix likeMatrix;
+    private final FilmStorage filmStorage;
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        IntIntCounter scores = likeMatrix.scoreUnseen(userId);
+        int[] ranked = scores.topKeys(limit);
+        log.debug("Рекомендации фильмов для пользователя {}: {} кандидатов", userId, scores.size());
+        return filmStorage.getByIds(Arrays.stream(ranked).boxed().toList());
+    }
+}
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.PostingList;
+import ru.yandex.practicum.filmorate.util.TextNormalizer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Полнотекстовый индекс по названиям и описаниям фильмов: для каждого слова — сжатый список фильмов
+ * с частотой слова (PostingList). Слово в названии весит как NAME_WEIGHT слов описания.
+ * Ранжирование — BM25; в выдачу попадают фильмы, содержащие все слова запроса. Списки пересекаются
+ * с пропуском блоков, начиная с самого короткого, а лучшие результаты отбираются кучей размера limit.
+ * Индекс строится параллельно при старте и обновляется синхронно при изменении фильмов;
+ * списки не изменяются после публикации, поэтому поиск работает без блокировок.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final int NAME_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Сколько фильмов разбирается в одной задаче ForkJoin при построении
+    private static final int FILMS_PER_TASK = 1024;
+
+    private final FilmStorage filmStorage;
+    private final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+    private final Map<Integer, Document> documents = new ConcurrentHashMap<>();
+    private volatile long totalLength;
+
+    // Слова фильма нужны, чтобы при изменении убрать его из списков пропавших слов
+    private record Document(String[] terms, int length) {
+    }
+
+    private record Source(int filmId, String name, String description) {
+    }
+
+    private record ScoredFilm(int filmId, double score) {
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        List<Source> sources = new ArrayList<>();
+        filmStorage.streamAll(film -> sources.add(new Source(film.getId(), film.getName(), film.getDescription())));
+
+        // Фильмы идут по возрастанию ID, поэтому списки частей склеиваются по порядку и остаются отсортированными
+        Partial built = ForkJoinPool.commonPool().invoke(new IndexTask(sources, 0, sources.size()));
+        Map<String, PostingList> loaded = new HashMap<>(built.terms.size() * 2);
+        built.terms.forEach((term, docs) -> loaded.put(term, PostingList.of(docs.docs, docs.freqs, docs.size)));
+
+        synchronized (this) {
+            postings.clear();
+            documents.clear();
+            postings.putAll(loaded);
+            documents.putAll(built.documents);
+            totalLength = built.totalLength;
+        }
+        log.info("Поисковый индекс построен: {} фильмов, {} слов, {} мс",
+                documents.size(), postings.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    public synchronized void index(Film film) {
+        int filmId = film.getId();
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = analyze(film.getName(), film.getDescription(), frequencies);
+
+        Document previous = documents.get(filmId);
+        if (previous != null) {
+            for (String term : previous.terms()) {
+                if (!frequencies.containsKey(term)) {
+                    removePosting(term, filmId);
+                }
+            }
+            totalLength -= previous.length();
+        }
+        frequencies.forEach((term, frequency) -> postings.compute(term,
+                (key, list) -> (list != null ? list : PostingList.EMPTY).with(filmId, frequency)));
+        documents.put(filmId, new Document(frequencies.keySet().toArray(String[]::new), length));
+        totalLength += length;
+    }
+
+    public synchronized void remove(int filmId) {
+        Document previous = documents.remove(filmId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            removePosting(term, filmId);
+        }
+        totalLength -= previous.length();
+    }
+
+    /**
+     * ID фильмов, содержащих все слова запроса, по убыванию BM25, при равенстве — по возрастанию ID.
+     */
+    public int[] search(String query, int limit) {
+        List<String> terms = TextNormalizer.tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            return EMPTY;
+        }
+        PostingList[] lists = new PostingList[terms.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(terms.get(i));
+            if (lists[i] == null) {
+                return EMPTY;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+
+        int filmCount = Math.max(1, documents.size());
+        double averageLength = Math.max(1.0, (double) totalLength / filmCount);
+        PostingList.Cursor[] cursors = new PostingList.Cursor[lists.length];
+        double[] idf = new double[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            cursors[i] = lists[i].cursor();
+            int df = lists[i].size();
+            idf[i] = Math.log(1 + (filmCount - df + 0.5) / (df + 0.5));
+        }
+
+        // Вверху кучи — худший из отобранных результатов
+        PriorityQueue<ScoredFilm> top = new PriorityQueue<>(limit + 1, Comparator
+                .comparingDouble(ScoredFilm::score)
+                .thenComparing(Comparator.comparingInt(ScoredFilm::filmId).reversed()));
+        PostingList.Cursor lead = cursors[0];
+        int doc = lead.next() ? lead.doc() : PostingList.Cursor.NO_MORE_DOCS;
+        candidates:
+        while (doc != PostingList.Cursor.NO_MORE_DOCS) {
+            for (int i = 1; i < cursors.length; i++) {
+                if (!cursors[i].advance(doc)) {
+                    break candidates;
+                }
+                if (cursors[i].doc() > doc) {
+                    doc = lead.advance(cursors[i].doc()) ? lead.doc() : PostingList.Cursor.NO_MORE_DOCS;
+                    continue candidates;
+                }
+            }
+
+            Document document = documents.get(doc);
+            double norm = K1 * (1 - B + B * (document != null ? document.length() : averageLength) / averageLength);
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                int frequency = cursors[i].freq();
+                score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+            }
+            top.add(new ScoredFilm(doc, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+            doc = lead.next() ? lead.doc() : PostingList.Cursor.NO_MORE_DOCS;
+        }
+
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().filmId();
+        }
+        return result;
+    }
+
+    private void removePosting(String term, int filmId) {
+        postings.computeIfPresent(term, (key, list) -> {
+            PostingList updated = list.without(filmId);
+            return updated.size() == 0 ? null : updated;
+        });
+    }
+
+    // Частоты слов фильма с учётом веса названия; возвращает взвешенную длину текста
+    private static int analyze(String name, String description, Map<String, Integer> frequencies) {
+        int length = 0;
+        for (String term : TextNormalizer.tokenize(name)) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String term : TextNormalizer.tokenize(description)) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+        return length;
+    }
+
+    private static final class TermDocs {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size++] = freq;
+        }
+
+        private void addAll(TermDocs other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.docs[i], other.freqs[i]);
+            }
+        }
+    }
+
+    private static final class Partial {
+        private final Map<String, TermDocs> terms = new HashMap<>();
+        private final Map<Integer, Document> documents = new HashMap<>();
+        private long totalLength;
+    }
+
+    private static class IndexTask extends RecursiveTask<Partial> {
+        private final List<Source> sources;
+        private final int from;
+        private final int to;
+
+        IndexTask(List<Source> sources, int from, int to) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > FILMS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                IndexTask left = new IndexTask(sources, from, middle);
+                left.fork();
+                Partial right = new IndexTask(sources, middle, to).compute();
+                Partial result = left.join();
+                right.terms.forEach((term, docs) ->
+                        result.terms.computeIfAbsent(term, key -> new TermDocs()).addAll(docs));
+                result.documents.putAll(right.documents);
+                result.totalLength += right.totalLength;
+                return result;
+            }
+
+            Partial partial = new Partial();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                Source source = sources.get(i);
+                frequencies.clear();
+                int length = analyze(source.name(), source.description(), frequencies);
+                frequencies.forEach((term, frequency) ->
+                        partial.terms.computeIfAbsent(term, key -> new TermDocs()).add(source.filmId(), frequency));
+                String[] terms = frequencies.keySet().toArray(String[]::new);
+                partial.documents.put(source.filmId(), new Document(terms, length));
+                partial.totalLength += length;
+            }
+            return partial;
+        }
+    }
+}
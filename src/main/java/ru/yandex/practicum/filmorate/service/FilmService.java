@@ -1,51 +1,93 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.ReadWriteRoutingDataSource;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
-import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.PopularityFilter;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
+    public static final int MAX_SIMILAR = 100;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmStorage filmStorage;
-    private final UserService userService;
     private final GenreDbStorage genreDbStorage;
-    private final MpaDbStorage mpaDbStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final FilmCache filmCache;
+    private final LikeWriteBehind likeWriteBehind;
+    private final FilmFeedService filmFeedService;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmAutocompleteIndex autocompleteIndex;
+
+    @PostConstruct
+    public void registerLikeHandler() {
+        likeWriteBehind.setHandler(this::applyLikeBatch);
+    }
 
     public Film create(Film film) {
         log.info("Создание фильма: {}", film.getName());
 
         validateMpa(film.getMpa());
         validateGenres(film.getGenres());
+        resolveReferences(film);
 
         Film createdFilm = filmStorage.create(film);
         log.info("Фильм успешно создан с ID: {}", createdFilm.getId());
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             genreDbStorage.addFilmGenres(createdFilm.getId(), film.getGenres());
         }
+        searchIndex.index(createdFilm);
+        autocompleteIndex.index(createdFilm);
         return createdFilm;
     }
 
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        log.info("Пакетное создание {} фильмов", films.size());
+
+        List<Film> createdFilms = filmStorage.createAll(films);
+        genreDbStorage.addFilmGenres(createdFilms);
+        for (Film film : createdFilms) {
+            searchIndex.index(film);
+            autocompleteIndex.index(film);
+            TransactionHooks.onRollback(() -> {
+                searchIndex.remove(film.getId());
+                autocompleteIndex.remove(film.getId());
+            });
+        }
+        return createdFilms;
+    }
+
     public Film update(Film film) {
         log.info("Обновление фильма с ID: {}", film.getId());
 
         getById(film.getId()); // Проверка существования фильма
         validateMpa(film.getMpa());
         validateGenres(film.getGenres());
+        resolveReferences(film);
 
         Film updatedFilm = filmStorage.update(film);
         log.info("Фильм с ID {} успешно обновлен", updatedFilm.getId());
@@ -53,16 +95,38 @@ public class FilmService {
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             genreDbStorage.addFilmGenres(updatedFilm.getId(), film.getGenres());
         }
+        filmCache.invalidate(updatedFilm.getId());
+        searchIndex.index(updatedFilm);
+        autocompleteIndex.index(updatedFilm);
         return updatedFilm;
     }
 
     public Film getById(int id) {
         log.debug("Получение фильма по ID: {}", id);
-        Film film = filmStorage.getById(id);
-        if (film != null) {
-            film.setGenres(new LinkedHashSet<>(genreDbStorage.getFilmGenres(film.getId())));
-        }
-        return film;
+        return filmCache.get(id, this::loadFilm);
+    }
+
+    public void delete(int id) {
+        log.info("Удаление фильма с ID: {}", id);
+        getById(id); // Проверка существования фильма
+        filmStorage.delete(id);
+        filmCache.invalidate(id);
+        searchIndex.remove(id);
+        autocompleteIndex.remove(id);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return filmCache.getStats();
+    }
+
+    public Map<String, Object> getLikeWriteStats() {
+        return likeWriteBehind.getStats();
+    }
+
+    // Кэш заполняется с основной базы: сразу после invalidate реплика может ещё не видеть изменение,
+    // и устаревшая запись прожила бы в кэше весь TTL
+    private Film loadFilm(int id) {
+        return ReadWriteRoutingDataSource.onPrimary(() -> filmStorage.getById(id));
     }
 
     public Collection<Film> getAll() {
@@ -70,45 +134,132 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
-    public void addLike(int filmId, int userId) {
-        log.info("Добавление лайка фильму ID {} от пользователя {}", filmId, userId);
+    public List<Film> getPage(int afterId, int limit) {
+        log.debug("Получение страницы фильмов после ID {}, размер {}", afterId, limit);
 
-        Film film = filmStorage.getById(filmId);
-        User user = userService.getById(userId);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.error("Некорректный размер страницы: {}", limit);
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
 
-        if (film == null || user == null) {
-            log.error("Ошибка при добавлении лайка: фильм или пользователь не найдены");
-            throw new NotFoundException("Фильм или пользователь не найдены");
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    public void streamAll(Consumer<Film> consumer) {
+        log.debug("Потоковая выгрузка всех фильмов");
+        filmStorage.streamAll(consumer);
+    }
+
+    // Возвращает true, если лайк поставлен в очередь асинхронной записи
+    public boolean addLike(int filmId, int userId) {
+        log.info("Добавление лайка фильму ID {} от пользователя {}", filmId, userId);
+
+        // Существование фильма и пользователя проверяет хранилище при записи;
+        // в асинхронном режиме лайки к несуществующим ID отбрасываются при записи пакета
+        if (likeWriteBehind.isEnabled()) {
+            likeWriteBehind.submit(new LikeEvent(filmId, userId, true));
+            return true;
         }
 
         filmStorage.addLike(filmId, userId);
+        filmCache.invalidate(filmId);
+        autocompleteIndex.markDirty(filmId);
+        filmFeedService.invalidateLiker(userId);
         log.debug("Лайк успешно добавлен");
+        return false;
     }
 
-    public void removeLike(int filmId, int userId) {
+    public boolean removeLike(int filmId, int userId) {
         log.info("Удаление лайка фильму ID {} от пользователя {}", filmId, userId);
 
-        Film film = filmStorage.getById(filmId);
-        User user = userService.getById(userId);
-
-        if (film == null || user == null) {
-            log.error("Ошибка при удалении лайка: фильм или пользователь не найдены");
-            throw new NotFoundException("Фильм или пользователь не найдены");
+        if (likeWriteBehind.isEnabled()) {
+            likeWriteBehind.submit(new LikeEvent(filmId, userId, false));
+            return true;
         }
 
         filmStorage.removeLike(filmId, userId);
+        filmCache.invalidate(filmId);
+        autocompleteIndex.markDirty(filmId);
+        filmFeedService.invalidateLiker(userId);
         log.debug("Лайк успешно удален");
+        return false;
+    }
+
+    public void applyLikeBatch(List<LikeEvent> events) {
+        filmStorage.applyLikes(events);
+        events.stream().map(LikeEvent::filmId).distinct().forEach(filmId -> {
+            filmCache.invalidate(filmId);
+            autocompleteIndex.markDirty(filmId);
+        });
+        events.stream().map(LikeEvent::userId).distinct().forEach(filmFeedService::invalidateLiker);
     }
 
-    public List<Film> getPopular(int count) {
-        log.info("Получение {} популярных фильмов", count);
+    public List<Film> getPopular(int count, int offset, PopularityFilter filter) {
+        log.info("Получение {} популярных фильмов, смещение {}, фильтр {}", count, offset, filter);
 
         if (count <= 0) {
             log.error("Некорректное количество фильмов: {}", count);
             throw new ValidationException("Количество фильмов должно быть положительным числом");
         }
+        if (offset < 0) {
+            log.error("Некорректное смещение: {}", offset);
+            throw new ValidationException("Смещение не может быть отрицательным");
+        }
+
+        // Несуществующий жанр или рейтинг — ошибка 404, а не пустой список
+        if (filter.genreId() != null) {
+            referenceData.getGenre(filter.genreId());
+        }
+        if (filter.mpaId() != null) {
+            referenceData.getMpa(filter.mpaId());
+        }
+
+        return filmStorage.getPopularFilms(count, offset, filter);
+    }
+
+    public List<Film> search(String query, int limit) {
+        log.debug("Поиск фильмов по запросу '{}', не более {}", query, limit);
+
+        if (query == null || query.isBlank()) {
+            log.error("Пустой поисковый запрос");
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            log.error("Некорректное количество результатов поиска: {}", limit);
+            throw new ValidationException("Количество результатов должно быть от 1 до " + MAX_SEARCH_RESULTS);
+        }
+
+        int[] found = searchIndex.search(query, limit);
+        return filmStorage.getByIds(Arrays.stream(found).boxed().toList());
+    }
+
+    public List<FilmSuggestion> autocomplete(String prefix, int limit) {
+        log.debug("Автодополнение названия по префиксу '{}', не более {}", prefix, limit);
 
-        return filmStorage.getPopularFilms(count);
+        if (prefix == null || prefix.isBlank()) {
+            log.error("Пустой префикс автодополнения");
+            throw new ValidationException("Префикс не может быть пустым");
+        }
+        if (limit <= 0 || limit > FilmAutocompleteIndex.MAX_COMPLETIONS) {
+            log.error("Некорректное количество подсказок: {}", limit);
+            throw new ValidationException(
+                    "Количество подсказок должно быть от 1 до " + FilmAutocompleteIndex.MAX_COMPLETIONS);
+        }
+
+        return autocompleteIndex.complete(prefix, limit);
+    }
+
+    public List<Film> getSimilar(int filmId, int limit) {
+        log.debug("Получение {} фильмов, похожих на фильм ID {}", limit, filmId);
+
+        if (limit <= 0 || limit > MAX_SIMILAR) {
+            log.error("Некорректное количество похожих фильмов: {}", limit);
+            throw new ValidationException("Количество похожих фильмов должно быть от 1 до " + MAX_SIMILAR);
+        }
+        getById(filmId); // Проверка существования фильма
+
+        int[] similar = similarityIndex.findSimilar(filmId, limit);
+        return filmStorage.getByIds(Arrays.stream(similar).boxed().toList());
     }
 
     private void validateMpa(Mpa mpa) {
@@ -117,12 +268,7 @@ public class FilmService {
             throw new ValidationException("MPA рейтинг обязателен");
         }
 
-        try {
-            mpaDbStorage.getMpaById(mpa.getId());
-        } catch (EmptyResultDataAccessException e) {
-            log.error("MPA с ID {} не найден", mpa.getId());
-            throw new NotFoundException("MPA с id=" + mpa.getId() + " не найден");
-        }
+        referenceData.getMpa(mpa.getId());
     }
 
     private void validateGenres(Set<Genre> genres) {
@@ -131,15 +277,20 @@ public class FilmService {
                     .map(Genre::getId)
                     .collect(Collectors.toSet());
 
-            List<Genre> existingGenres = genreDbStorage.getGenresByIds(genreIds);
-            if (existingGenres.size() != genreIds.size()) {
-                Set<Integer> existingIds = existingGenres.stream()
-                        .map(Genre::getId)
-                        .collect(Collectors.toSet());
-
-                genreIds.removeAll(existingIds);
-                throw new NotFoundException("Жанры с id=" + genreIds + " не найдены");
+            Set<Integer> missingIds = referenceData.findMissingGenreIds(genreIds);
+            if (!missingIds.isEmpty()) {
+                throw new NotFoundException("Жанры с id=" + missingIds + " не найдены");
             }
         }
     }
-}
\ No newline at end of file
+
+    // Заменяем ссылки из запроса общими экземплярами справочника, чтобы в ответе были названия
+    private void resolveReferences(Film film) {
+        film.setMpa(referenceData.getMpa(film.getMpa().getId()));
+        if (film.getGenres() != null) {
+            film.setGenres(film.getGenres().stream()
+                    .map(genre -> referenceData.getGenre(genre.getId()))
+                    .collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+    }
+}
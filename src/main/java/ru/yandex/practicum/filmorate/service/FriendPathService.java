@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.SearchLimitExceededException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Кратчайшая цепочка дружбы между двумя пользователями. Двунаправленный поиск в ширину:
+ * от первого пользователя по спискам друзей, от второго — по спискам входящих, каждый шаг
+ * расширяет меньший фронт. Обход ограничен глубиной и общим числом посещённых вершин; лимит вершин
+ * проверяется при каждом посещении, а его превышение отличается от отсутствия пути (422, а не 404).
+ */
+@Slf4j
+@Service
+public class FriendPathService {
+    public static final int MAX_DEPTH = 10;
+
+    private final FriendGraph friendGraph;
+    private final UserStorage userStorage;
+    private final int maxVisits;
+
+    public FriendPathService(FriendGraph friendGraph,
+                             UserStorage userStorage,
+                             @Value("${filmorate.friend-path.max-visits:1000000}") int maxVisits) {
+        this.friendGraph = friendGraph;
+        this.userStorage = userStorage;
+        this.maxVisits = maxVisits;
+    }
+
+    public List<User> findPath(int fromId, int toId, int maxDepth) {
+        return userStorage.getByIds(findPathIds(fromId, toId, maxDepth));
+    }
+
+    int[] findPathIds(int fromId, int toId, int maxDepth) {
+        if (fromId == toId) {
+            return new int[]{fromId};
+        }
+        Frontier forward = new Frontier(fromId, true);
+        Frontier backward = new Frontier(toId, false);
+
+        for (int depth = 0; depth < maxDepth; depth++) {
+            Frontier smaller = forward.levelSize() <= backward.levelSize() ? forward : backward;
+            Frontier other = smaller == forward ? backward : forward;
+            if (smaller.levelSize() == 0) {
+                break;
+            }
+            int meeting = smaller.expand(other);
+            if (meeting >= 0) {
+                int[] path = join(forward, backward, meeting);
+                log.debug("Путь {} -> {} длиной {} найден, посещено вершин: {}",
+                        fromId, toId, path.length - 1, forward.size + backward.size);
+                return path;
+            }
+        }
+        throw new NotFoundException("Путь между пользователями " + fromId + " и " + toId
+                + " длиной до " + maxDepth + " не найден");
+    }
+
+    // Цепочка от начала до вершины встречи, затем от вершины встречи до цели
+    private int[] join(Frontier forward, Frontier backward, int meeting) {
+        int[] head = forward.chainTo(meeting);
+        int[] tail = backward.chainTo(meeting);
+        int[] path = new int[head.length + tail.length - 1];
+        for (int i = 0; i < head.length; i++) {
+            path[i] = head[head.length - 1 - i];
+        }
+        System.arraycopy(tail, 1, path, head.length, tail.length - 1);
+        return path;
+    }
+
+    /**
+     * Одна сторона поиска: очередь вершин в порядке посещения и индекс родителя для каждой,
+     * текущий уровень — отрезок [levelStart, levelEnd) очереди.
+     */
+    private class Frontier {
+        private final boolean followFriends;
+        private final BitSet visited = new BitSet();
+        private int[] queue = new int[64];
+        private int[] parents = new int[64];
+        private int size;
+        private int levelStart;
+        private int levelEnd;
+
+        Frontier(int start, boolean followFriends) {
+            this.followFriends = followFriends;
+            append(start, -1);
+            levelEnd = size;
+        }
+
+        int levelSize() {
+            return levelEnd - levelStart;
+        }
+
+        // Расширяет текущий уровень; возвращает вершину встречи с другой стороной или -1
+        int expand(Frontier other) {
+            for (int i = levelStart; i < levelEnd; i++) {
+                int[] neighbours = followFriends
+                        ? friendGraph.getFriends(queue[i])
+                        : friendGraph.getFollowers(queue[i]);
+                for (int neighbour : neighbours) {
+                    if (visited.get(neighbour)) {
+                        continue;
+                    }
+                    append(neighbour, i);
+                    if (other.visited.get(neighbour)) {
+                        return neighbour;
+                    }
+                    // Один уровень вокруг пользователя с большим числом связей может сам по себе превысить лимит
+                    if (size + other.size > maxVisits) {
+                        throw new SearchLimitExceededException("Поиск пути прерван: посещено больше "
+                                + maxVisits + " пользователей");
+                    }
+                }
+            }
+            levelStart = levelEnd;
+            levelEnd = size;
+            return -1;
+        }
+
+        // Цепочка родителей от вершины до начальной вершины этой стороны
+        int[] chainTo(int node) {
+            int index = size - 1;
+            while (queue[index] != node) {
+                index--;
+            }
+            int length = 0;
+            int[] chain = new int[MAX_DEPTH + 1];
+            for (; index >= 0; index = parents[index]) {
+                if (length == chain.length) {
+                    chain = Arrays.copyOf(chain, length * 2);
+                }
+                chain[length++] = queue[index];
+            }
+            return Arrays.copyOf(chain, length);
+        }
+
+        private void append(int node, int parent) {
+            if (size == queue.length) {
+                queue = Arrays.copyOf(queue, size * 2);
+                parents = Arrays.copyOf(parents, size * 2);
+            }
+            visited.set(node);
+            queue[size] = node;
+            parents[size] = parent;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntIntCounter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Рекомендации друзей: друзья друзей, упорядоченные по числу общих друзей.
+ * Обход идёт по графу в памяти; окружение с большим числом связей делится
+ * между потоками ForkJoin, частичные счётчики затем складываются.
+ */
+@Slf4j
+@Service
+public class FriendSuggestionService {
+    public static final int MAX_SUGGESTIONS = 100;
+
+    // Суммарная степень друзей, начиная с которой подсчёт распараллеливается
+    private static final int PARALLEL_THRESHOLD = 50_000;
+
+    private final FriendGraph friendGraph;
+    private final UserStorage userStorage;
+    private final Cache<Integer, int[]> cache;
+
+    public FriendSuggestionService(FriendGraph friendGraph,
+                                   UserStorage userStorage,
+                                   @Value("${filmorate.friend-suggestions.cache.maximum-size:10000}") long maximumSize) {
+        this.friendGraph = friendGraph;
+        this.userStorage = userStorage;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public List<User> getSuggestions(int userId, int limit) {
+        int[] ranked = cache.get(userId, this::rank);
+        return userStorage.getByIds(Arrays.copyOf(ranked, Math.min(limit, ranked.length)));
+    }
+
+    // Изменение друзей пользователя меняет рекомендации ему самому и всем, у кого он в друзьях
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+        for (int followerId : friendGraph.getFollowers(userId)) {
+            cache.invalidate(followerId);
+        }
+    }
+
+    // Массовый импорт меняет граф целиком
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private int[] rank(int userId) {
+        int[] friends = friendGraph.getFriends(userId);
+        long work = 0;
+        for (int friendId : friends) {
+            work += friendGraph.getFriends(friendId).length;
+        }
+
+        IntIntCounter mutualFriends = work >= PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(new CountTask(userId, friends, 0, friends.length))
+                : count(userId, friends, 0, friends.length);
+        log.debug("Рекомендации для пользователя {}: {} кандидатов, {} связей просмотрено",
+                userId, mutualFriends.size(), work);
+        return mutualFriends.topKeys(MAX_SUGGESTIONS);
+    }
+
+    private IntIntCounter count(int userId, int[] friends, int from, int to) {
+        IntIntCounter counter = new IntIntCounter(64);
+        for (int i = from; i < to; i++) {
+            for (int candidate : friendGraph.getFriends(friends[i])) {
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    counter.increment(candidate);
+                }
+            }
+        }
+        return counter;
+    }
+
+    private class CountTask extends RecursiveTask<IntIntCounter> {
+        private final int userId;
+        private final int[] friends;
+        private final int from;
+        private final int to;
+
+        CountTask(int userId, int[] friends, int from, int to) {
+            this.userId = userId;
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntIntCounter compute() {
+            long work = 0;
+            for (int i = from; i < to; i++) {
+                work += friendGraph.getFriends(friends[i]).length;
+            }
+            if (work < PARALLEL_THRESHOLD || to - from < 2) {
+                return count(userId, friends, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(userId, friends, from, middle);
+            left.fork();
+            IntIntCounter right = new CountTask(userId, friends, middle, to).compute();
+            IntIntCounter result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ограниченный lock-free кольцевой буфер событий лайков: много производителей, один потребитель.
+ * Каждая ячейка хранит номер последовательности, по которому производитель понимает, что ячейка
+ * свободна, а потребитель — что значение уже опубликовано. Событие упаковано в long без аллокаций.
+ */
+class LikeRingBuffer {
+    private final int capacity;
+    private final int mask;
+    private final long[] values;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    LikeRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть степенью двойки: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.values = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(LikeEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    values[index] = encode(event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Вызывается только из потока-писателя
+    int drainTo(LikeEvent[] target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            target[drained++] = decode(values[index]);
+            sequences.set(index, head + capacity);
+            head++;
+        }
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    // ID пользователя должен быть положительным (проверяется в LikeWriteBehind.submit), иначе знак затрёт ID фильма
+    private static long encode(LikeEvent event) {
+        return ((long) event.filmId() << 32) | ((long) event.userId() << 1) | (event.liked() ? 1 : 0);
+    }
+
+    private static LikeEvent decode(long value) {
+        return new LikeEvent((int) (value >>> 32), (int) ((value & 0xFFFFFFFFL) >>> 1), (value & 1) == 1);
+    }
+}
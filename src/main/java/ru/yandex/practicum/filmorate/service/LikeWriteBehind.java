@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронная запись лайков (включается filmorate.likes.async.enabled). Запросы кладут события
+ * в кольцевой буфер, единственный поток-писатель собирает их в пакеты и передаёт обработчику,
+ * который записывает пакет одной транзакцией. Пакет сбрасывается при наборе batch-size событий
+ * или по истечении flush-latency с момента первого события в пакете. Пакет, который не удалось записать,
+ * повторяется до MAX_FLUSH_ATTEMPTS раз, после чего его события считаются потерянными и видны в getStats().
+ */
+@Slf4j
+@Component
+public class LikeWriteBehind implements SmartLifecycle {
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(1).toNanos();
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_NANOS = Duration.ofMillis(100).toNanos();
+
+    private final boolean enabled;
+    private final LikeRingBuffer buffer;
+    private final int batchSize;
+    private final long flushLatencyNanos;
+    private final long offerTimeoutNanos;
+
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong retriedBatches = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private volatile Consumer<List<LikeEvent>> handler;
+    private volatile boolean running;
+    private Thread writer;
+
+    public LikeWriteBehind(@Value("${filmorate.likes.async.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.async.buffer-capacity:65536}") int bufferCapacity,
+                           @Value("${filmorate.likes.async.batch-size:1000}") int batchSize,
+                           @Value("${filmorate.likes.async.flush-latency:50ms}") Duration flushLatency,
+                           @Value("${filmorate.likes.async.offer-timeout:100ms}") Duration offerTimeout) {
+        this.enabled = enabled;
+        this.buffer = enabled ? new LikeRingBuffer(bufferCapacity) : null;
+        this.batchSize = batchSize;
+        this.flushLatencyNanos = flushLatency.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setHandler(Consumer<List<LikeEvent>> handler) {
+        this.handler = handler;
+    }
+
+    // Если буфер заполнен, ждём освобождения не дольше offer-timeout, затем отказываем с 503
+    public void submit(LikeEvent event) {
+        // ID пользователя занимает 31 бит упакованного события; неположительных ID в базе не бывает
+        if (event.filmId() <= 0) {
+            throw new NotFoundException("Фильм с ID " + event.filmId() + " не найден");
+        }
+        if (event.userId() <= 0) {
+            throw new NotFoundException("Пользователь с ID " + event.userId() + " не найден");
+        }
+        if (!running) {
+            throw new ServiceUnavailableException("Приём лайков остановлен");
+        }
+        if (buffer.offer(event)) {
+            return;
+        }
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return;
+            }
+        }
+        log.warn("Буфер лайков переполнен, событие отклонено: {}", event);
+        throw new ServiceUnavailableException("Сервис перегружен, повторите запрос позже");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("writtenEvents", writtenEvents.get());
+        result.put("retriedBatches", retriedBatches.get());
+        result.put("droppedEvents", droppedEvents.get());
+        return result;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || handler == null) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "like-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Асинхронная запись лайков включена: пакет {}, задержка {} мс", batchSize,
+                Duration.ofNanos(flushLatencyNanos).toMillis());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(Duration.ofSeconds(30).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWriter() {
+        LikeEvent[] scratch = new LikeEvent[batchSize];
+        // Для каждой пары (фильм, пользователь) остаётся только последнее действие:
+        // лайк и последующий его отзыв в одном пакете схлопываются в одну запись
+        Map<Long, LikeEvent> pending = new LinkedHashMap<>();
+        int received = 0;
+        long firstEventAt = 0;
+
+        while (running || !buffer.isEmpty() || !pending.isEmpty()) {
+            int drained = buffer.drainTo(scratch, batchSize - received);
+            for (int i = 0; i < drained; i++) {
+                LikeEvent event = scratch[i];
+                pending.put(((long) event.filmId() << 32) | (event.userId() & 0xFFFFFFFFL), event);
+            }
+            if (received == 0 && drained > 0) {
+                firstEventAt = System.nanoTime();
+            }
+            received += drained;
+
+            boolean due = received > 0 && System.nanoTime() - firstEventAt >= flushLatencyNanos;
+            if (received >= batchSize || due || (!running && received > 0)) {
+                flush(new ArrayList<>(pending.values()), received);
+                pending.clear();
+                received = 0;
+            } else if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Клиенту уже ответили 202, поэтому пакет повторяется, а потерянные события подсчитываются
+    private void flush(List<LikeEvent> events, int received) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.accept(events);
+                writtenEvents.addAndGet(events.size());
+                log.debug("Записан пакет лайков: получено {}, записано {}", received, events.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_FLUSH_ATTEMPTS) {
+                    droppedEvents.addAndGet(events.size());
+                    log.error("Не удалось записать пакет из {} лайков за {} попыток, события потеряны",
+                            events.size(), attempt, e);
+                    return;
+                }
+                retriedBatches.incrementAndGet();
+                log.warn("Не удалось записать пакет из {} лайков, попытка {}: {}", events.size(), attempt,
+                        e.getMessage());
+                LockSupport.parkNanos(RETRY_BACKOFF_NANOS * attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Запуск импорта при старте приложения (filmorate.import.enabled=true). Сначала загружаются
+ * пользователи, затем связи (только в том же запуске, что и пользователи), после чего граф дружбы
+ * и индексы в памяти перестраиваются, а кэши рекомендаций друзей и лент сбрасываются.
+ * При filmorate.import.exit=true приложение завершается после импорта с кодом 1, если часть данных
+ * не записана. Пример офлайн-запуска:
+ * java -jar filmorate.jar --spring.main.web-application-type=none --filmorate.import.enabled=true
+ * --filmorate.import.users-file=users.csv --filmorate.import.friendships-file=friends.csv
+ * --filmorate.import.exit=true
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.import.enabled", havingValue = "true")
+public class UserImportRunner implements ApplicationRunner {
+    private final UserImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final String usersFile;
+    private final String friendshipsFile;
+    private final boolean exit;
+
+    public UserImportRunner(UserImportService importService,
+                            ConfigurableApplicationContext context,
+                            @Value("${filmorate.import.users-file:}") String usersFile,
+                            @Value("${filmorate.import.friendships-file:}") String friendshipsFile,
+                            @Value("${filmorate.import.exit:false}") boolean exit) {
+        this.importService = importService;
+        this.context = context;
+        this.usersFile = usersFile;
+        this.friendshipsFile = friendshipsFile;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int failedChunks = 0;
+        if (!usersFile.isBlank()) {
+            failedChunks += importService.importUsers(Path.of(usersFile)).failedChunks();
+        }
+        if (!friendshipsFile.isBlank()) {
+            failedChunks += importService.importFriendships(Path.of(friendshipsFile)).failedChunks();
+        }
+        importService.reloadIndexes();
+
+        if (exit) {
+            int exitCode = failedChunks == 0 ? 0 : 1;
+            log.info("Импорт завершён, приложение останавливается с кодом {}", exitCode);
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserImportStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Массовый импорт пользователей и связей дружбы из CSV. Файл делится на части по границам строк,
+ * каждая часть отображается в память (FileChannel.map) и разбирается в отдельном потоке,
+ * а затем записывается большими JDBC-пакетами в собственной транзакции.
+ * Форматы строк: users — id,email,login,name,birthday (yyyy-MM-dd, обязательна);
+ * friendships — user_id,friend_id (заявка от user_id к friend_id).
+ * Аннотации валидации модели не применяются; некорректные строки пропускаются и подсчитываются,
+ * ошибка записи части откатывает только эту часть.
+ * Импорт только добавляет данные: пользователь с уже занятым ID, логином или email пропускается,
+ * а связь принимается, только если оба пользователя вставлены импортом пользователей в этом же запуске —
+ * иначе ID из файла партнёра могут указывать на чужих пользователей. Пропущенные строки
+ * подсчитываются по причинам (RejectReason).
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private static final int MAX_LOGGED_REJECTS = 20;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    // Отображение одной части не может превышать 2 ГБ
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final UserImportStorage importStorage;
+    private final FriendSuggestionService friendSuggestionService;
+    private final FilmFeedService filmFeedService;
+    private final TransactionTemplate transactionTemplate;
+    private final long chunkBytes;
+    private final int batchSize;
+    private final int threads;
+    private final boolean skipHeader;
+    // Отсортированные ID пользователей, вставленных последним импортом; null — импорта ещё не было
+    private volatile int[] importedUserIds;
+
+    public UserImportService(UserImportStorage importStorage,
+                             FriendSuggestionService friendSuggestionService,
+                             FilmFeedService filmFeedService,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${filmorate.import.chunk-size:16MB}") DataSize chunkSize,
+                             @Value("${filmorate.import.batch-size:10000}") int batchSize,
+                             @Value("${filmorate.import.threads:0}") int threads,
+                             @Value("${filmorate.import.skip-header:true}") boolean skipHeader) {
+        this.importStorage = importStorage;
+        this.friendSuggestionService = friendSuggestionService;
+        this.filmFeedService = filmFeedService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkBytes = Math.clamp(chunkSize.toBytes(), 1, MAX_CHUNK_BYTES);
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.skipHeader = skipHeader;
+    }
+
+    public enum RejectReason {
+        // Строка не разобрана
+        MALFORMED,
+        // Пользователь с таким ID уже существует
+        DUPLICATE_ID,
+        // Логин или email уже заняты другим пользователем
+        DUPLICATE_LOGIN_OR_EMAIL,
+        // Связь ссылается на пользователя, не вставленного импортом
+        UNKNOWN_USER
+    }
+
+    public record ImportReport(String source, long rows, Map<RejectReason, Long> rejectedByReason, int chunks,
+                               int failedChunks, Duration elapsed) {
+        public long rejected() {
+            return rejectedByReason.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long rowsPerSecond() {
+            return elapsed.toMillis() > 0 ? rows * 1000 / elapsed.toMillis() : rows;
+        }
+    }
+
+    public ImportReport importUsers(Path file) {
+        Queue<int[]> inserted = new ConcurrentLinkedQueue<>();
+        ImportReport report = importFile(file, this::parseUser, users -> {
+            UserImportStorage.InsertResult result = importStorage.insertUsers(users, batchSize);
+            return new ChunkResult(result.insertedIds().length, Map.of(
+                    RejectReason.DUPLICATE_ID, result.duplicateIds(),
+                    RejectReason.DUPLICATE_LOGIN_OR_EMAIL, result.duplicateLoginsOrEmails()), result.insertedIds());
+        }, result -> inserted.add(result.userIds()));
+        importStorage.restartUserIds();
+        importedUserIds = inserted.stream().flatMapToInt(Arrays::stream).sorted().toArray();
+        return report;
+    }
+
+    // Направления одной пары внутри части объединяются, поэтому на пару приходится одна строка пакета
+    public ImportReport importFriendships(Path file) {
+        int[] known = importedUserIds;
+        if (known == null) {
+            log.warn("Импорт связей без импорта пользователей в этом запуске: все связи будут пропущены");
+        }
+        return importFile(file, UserImportService::parseEdge, edges -> {
+            NavigableMap<Long, Integer> stateByPair = new TreeMap<>();
+            int unknown = 0;
+            for (long[] edge : edges) {
+                if (!isImported(known, (int) (edge[0] >>> 32)) || !isImported(known, (int) edge[0])) {
+                    unknown++;
+                    continue;
+                }
+                stateByPair.merge(edge[0], (int) edge[1], (a, b) -> a | b);
+            }
+            importStorage.mergeFriendPairs(stateByPair, batchSize);
+            return new ChunkResult(edges.size() - unknown, Map.of(RejectReason.UNKNOWN_USER, unknown), null);
+        }, result -> {
+        });
+    }
+
+    // Граф и индекс логинов перестраиваются из базы, кэши рекомендаций и лент сбрасываются целиком
+    public void reloadIndexes() {
+        importStorage.reloadIndexes();
+        friendSuggestionService.invalidateAll();
+        filmFeedService.invalidateAll();
+    }
+
+    private static boolean isImported(int[] known, int userId) {
+        return known != null && Arrays.binarySearch(known, userId) >= 0;
+    }
+
+    private interface LineParser<T> {
+        T parse(String line);
+    }
+
+    private interface ChunkWriter<T> {
+        ChunkResult write(List<T> rows);
+    }
+
+    // Итог записи части: число записанных строк, пропущенные по причинам и ID вставленных пользователей
+    private record ChunkResult(int written, Map<RejectReason, Integer> rejected, int[] userIds) {
+    }
+
+    private record Range(long start, long end) {
+    }
+
+    private <T> ImportReport importFile(Path file, LineParser<T> parser, ChunkWriter<T> writer,
+                                        Consumer<ChunkResult> onWritten) {
+        long startedAt = System.nanoTime();
+        String source = file.getFileName().toString();
+        AtomicLong rows = new AtomicLong();
+        Map<RejectReason, AtomicLong> rejected = new EnumMap<>(RejectReason.class);
+        for (RejectReason reason : RejectReason.values()) {
+            rejected.put(reason, new AtomicLong());
+        }
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Range> ranges = split(channel);
+            log.info("Импорт {}: {} байт, {} частей, {} потоков", source, channel.size(), ranges.size(), threads);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>(ranges.size());
+                for (Range range : ranges) {
+                    futures.add(executor.submit(() -> {
+                        List<T> parsed = parseRange(channel, range, parser, source,
+                                rejected.get(RejectReason.MALFORMED));
+                        try {
+                            // Пропуски при записи учитываются только после фиксации части
+                            ChunkResult result = writeChunk(parsed, writer);
+                            rows.addAndGet(result.written());
+                            result.rejected().forEach((reason, count) -> rejected.get(reason).addAndGet(count));
+                            onWritten.accept(result);
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                            log.error("Импорт {}: часть [{}, {}) не записана: {}", source, range.start(), range.end(),
+                                    e.getMessage());
+                        }
+                        logProgress(source, done.incrementAndGet(), ranges.size(), rows.get(), startedAt);
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать файл импорта " + file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Импорт " + source + " прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Импорт " + source + " завершился ошибкой", e.getCause());
+        }
+
+        Map<RejectReason, Long> rejectedByReason = new EnumMap<>(RejectReason.class);
+        rejected.forEach((reason, count) -> rejectedByReason.put(reason, count.get()));
+        ImportReport report = new ImportReport(source, rows.get(), Collections.unmodifiableMap(rejectedByReason),
+                done.get(), failed.get(), Duration.ofNanos(System.nanoTime() - startedAt));
+        log.info("Импорт {} завершён: {} строк за {} мс ({} строк/с), пропущено {} {}, ошибок в частях {}",
+                source, report.rows(), report.elapsed().toMillis(), report.rowsPerSecond(), report.rejected(),
+                report.rejectedByReason(), report.failedChunks());
+        return report;
+    }
+
+    // Параллельные части могут ждать блокировок одних и тех же строк, а две части — одновременно вставить
+    // один логин или email; запись части идемпотентна, поэтому после отката её можно повторить:
+    // при повторе конфликтующая строка уже видна и пропускается
+    private <T> ChunkResult writeChunk(List<T> rows, ChunkWriter<T> writer) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> writer.write(rows));
+            } catch (ConcurrencyFailureException | DuplicateKeyException e) {
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Конфликт при импорте, повтор записи части ({}/{})", attempt, MAX_WRITE_ATTEMPTS);
+            }
+        }
+    }
+
+    private static void logProgress(String source, int done, int total, long rows, long startedAt) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Импорт {}: {}/{} частей, {} строк, {} строк/с", source, done, total, rows,
+                rows * 1000 / elapsedMillis);
+    }
+
+    // Номинальные границы частей сдвигаются вперёд до ближайшего перевода строки
+    private List<Range> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long start = skipHeader ? nextLineStart(channel, 0) : 0;
+        List<Range> ranges = new ArrayList<>();
+        while (start < size) {
+            long end = start + chunkBytes >= size ? size : nextLineStart(channel, start + chunkBytes);
+            ranges.add(new Range(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private <T> List<T> parseRange(FileChannel channel, Range range, LineParser<T> parser, String source,
+                                   AtomicLong malformed) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.end() - range.start());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<T> rows = new ArrayList<>();
+        byte[] line = new byte[256];
+        int lineStart = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            int length = i - lineStart;
+            if (length > 0 && buffer.get(lineStart + length - 1) == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                buffer.get(lineStart, line, 0, length);
+                String text = new String(line, 0, length, StandardCharsets.UTF_8);
+                T row = parseOrNull(parser, text);
+                if (row != null) {
+                    rows.add(row);
+                } else if (malformed.incrementAndGet() <= MAX_LOGGED_REJECTS) {
+                    log.warn("Импорт {}: пропущена некорректная строка '{}'", source, text);
+                }
+            }
+            lineStart = i + 1;
+        }
+        return rows;
+    }
+
+    private static <T> T parseOrNull(LineParser<T> parser, String line) {
+        try {
+            return parser.parse(line);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private User parseUser(String line) {
+        List<String> fields = splitCsv(line);
+        // Дата рождения обязательна: строка без неё считается некорректной
+        if (fields.size() != 5 || fields.get(1).isBlank() || fields.get(2).isBlank() || fields.get(4).isBlank()) {
+            return null;
+        }
+        String name = fields.get(3);
+        return User.builder()
+                .id(Integer.parseInt(fields.get(0).trim()))
+                .email(fields.get(1))
+                .login(fields.get(2))
+                .name(name.isEmpty() ? null : name)
+                .birthday(LocalDate.parse(fields.get(4).trim()))
+                .build();
+    }
+
+    // Ребро как {ключ пары, бит направления}
+    private static long[] parseEdge(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        int userId = Integer.parseInt(line.substring(0, comma).trim());
+        int friendId = Integer.parseInt(line.substring(comma + 1).trim());
+        if (userId == friendId) {
+            return null;
+        }
+        return new long[]{UserImportStorage.pairKey(userId, friendId), UserImportStorage.directionBit(userId, friendId)};
+    }
+
+    // Поля через запятую; поле в двойных кавычках может содержать запятые и удвоенные кавычки
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
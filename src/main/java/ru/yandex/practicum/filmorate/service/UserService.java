@@ -4,17 +4,29 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LIKES_PAGE_SIZE = 10_000;
+
     private final UserStorage userStorage;
     private final FriendshipStorage friendshipStorage;
+    private final FilmStorage filmStorage;
+    private final FriendSuggestionService friendSuggestionService;
+    private final FriendPathService friendPathService;
+    private final FilmFeedService filmFeedService;
+    private final FilmRecommendationService filmRecommendationService;
 
     public User create(User user) {
         return userStorage.create(user);
@@ -32,34 +44,52 @@ public class UserService {
         return userStorage.getById(id);
     }
 
+    public User getByLogin(String login) {
+        return userStorage.getByLogin(login);
+    }
+
+    public User getByEmail(String email) {
+        return userStorage.getByEmail(email);
+    }
+
     public Collection<User> getAll() {
         return userStorage.getAll();
     }
 
-    public void addFriend(int userId, int friendId) {
-        User user = userStorage.getById(userId);
-        User friend = userStorage.getById(friendId);
-
-        if (user == null || friend == null) {
-            throw new NotFoundException("Пользователь не найден");
+    public List<User> getPage(int afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
         }
+        return userStorage.getPage(afterId, limit);
+    }
 
+    // Существование пользователей проверяет хранилище при записи
+    public void addFriend(int userId, int friendId) {
         if (userId == friendId) {
             throw new ValidationException("Пользователь не может добавить себя в друзья");
         }
 
         friendshipStorage.addFriendship(userId, friendId);
+        friendSuggestionService.invalidate(userId);
+        filmFeedService.invalidate(userId);
     }
 
     public void removeFriend(int userId, int friendId) {
-        User user = userStorage.getById(userId);
-        User friend = userStorage.getById(friendId);
+        friendshipStorage.removeFriendship(userId, friendId);
+        friendSuggestionService.invalidate(userId);
+        filmFeedService.invalidate(userId);
+    }
 
-        if (user == null || friend == null) {
-            throw new NotFoundException("Пользователь не найден");
-        }
+    public void acceptFriendRequest(int userId, int requesterId) {
+        friendshipStorage.acceptFriendship(userId, requesterId);
+        friendSuggestionService.invalidate(userId);
+        filmFeedService.invalidate(userId);
+    }
 
-        friendshipStorage.removeFriendship(userId, friendId);
+    public void declineFriendRequest(int userId, int requesterId) {
+        friendshipStorage.declineFriendship(userId, requesterId);
+        friendSuggestionService.invalidate(requesterId);
+        filmFeedService.invalidate(requesterId);
     }
 
     public List<User> getFriends(int userId) {
@@ -80,4 +110,74 @@ public class UserService {
 
         return friendshipStorage.getCommonFriends(userId, otherId);
     }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        if (limit <= 0 || limit > FriendSuggestionService.MAX_SUGGESTIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до "
+                    + FriendSuggestionService.MAX_SUGGESTIONS);
+        }
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new NotFoundException("Пользователь не найден! id=" + userId);
+        }
+        return friendSuggestionService.getSuggestions(userId, limit);
+    }
+
+    public List<User> getFriendPath(int userId, int otherId, int maxDepth) {
+        if (maxDepth <= 0 || maxDepth > FriendPathService.MAX_DEPTH) {
+            throw new ValidationException("Глубина поиска должна быть от 1 до " + FriendPathService.MAX_DEPTH);
+        }
+        if (userStorage.getById(userId) == null || userStorage.getById(otherId) == null) {
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return friendPathService.findPath(userId, otherId, maxDepth);
+    }
+
+    public List<Film> getFeed(int userId, int limit) {
+        if (limit <= 0 || limit > FilmFeedService.MAX_FEED_SIZE) {
+            throw new ValidationException("Размер ленты должен быть от 1 до " + FilmFeedService.MAX_FEED_SIZE);
+        }
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new NotFoundException("Пользователь не найден! id=" + userId);
+        }
+        return filmFeedService.getFeed(userId, limit);
+    }
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (limit <= 0 || limit > FilmRecommendationService.MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до "
+                    + FilmRecommendationService.MAX_RECOMMENDATIONS);
+        }
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new NotFoundException("Пользователь не найден! id=" + userId);
+        }
+        return filmRecommendationService.getRecommendations(userId, limit);
+    }
+
+    public List<Film> getCommonLikedFilms(int userId, int otherId) {
+        if (userStorage.getById(userId) == null || userStorage.getById(otherId) == null) {
+            throw new NotFoundException("Пользователь не найден");
+        }
+        int[] common = SortedIntArrays.intersect(filmStorage.getLikedFilmIds(userId),
+                filmStorage.getLikedFilmIds(otherId));
+        return filmStorage.getByIds(Arrays.stream(common).boxed().toList());
+    }
+
+    // Последний ID полной страницы лайков (для курсора следующей страницы) или пусто, если страница последняя
+    public OptionalInt getLikedFilmsPageEnd(int userId, int afterFilmId, int limit) {
+        if (limit <= 0 || limit > MAX_LIKES_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_LIKES_PAGE_SIZE);
+        }
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new NotFoundException("Пользователь не найден! id=" + userId);
+        }
+        return filmStorage.getLikedPageLastId(userId, afterFilmId, limit);
+    }
+
+    public void streamLikedFilms(int userId, int afterFilmId, int upToFilmId, int limit, Consumer<Film> consumer) {
+        filmStorage.streamLikedFilms(userId, afterFilmId, upToFilmId, limit, consumer);
+    }
 }
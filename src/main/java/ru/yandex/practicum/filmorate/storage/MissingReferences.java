@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import java.sql.SQLException;
+
+/**
+ * Распознавание ссылок на несуществующие записи по нарушению внешнего ключа.
+ * Вместо предварительной проверки существования запись выполняется сразу,
+ * а ошибка внешнего ключа превращается в NotFoundException.
+ */
+public final class MissingReferences {
+    // SQLSTATE H2 для ссылки на отсутствующую родительскую запись
+    private static final String PARENT_MISSING = "23506";
+
+    private MissingReferences() {
+    }
+
+    public static RuntimeException translate(DataIntegrityViolationException e, String message) {
+        if (e.getMostSpecificCause() instanceof SQLException sqlException
+                && PARENT_MISSING.equals(sqlException.getSQLState())) {
+            return new NotFoundException(message);
+        }
+        return e;
+    }
+}
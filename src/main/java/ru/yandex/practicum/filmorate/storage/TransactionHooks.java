@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Привязка изменений in-memory структур к текущей транзакции.
+ * Изменение применяется сразу (чтобы транзакция видела свои записи),
+ * а при откате транзакции выполняются компенсирующие действия в обратном порядке.
+ * Проверки, которым нужно зафиксированное состояние, регистрируются через afterCommit.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    public static void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Deque<Runnable> undos = (Deque<Runnable>) TransactionSynchronizationManager.getResource(TransactionHooks.class);
+        if (undos == null) {
+            Deque<Runnable> registered = new ArrayDeque<>();
+            TransactionSynchronizationManager.bindResource(TransactionHooks.class, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransactionHooks.class);
+                    if (status == STATUS_ROLLED_BACK) {
+                        registered.forEach(Runnable::run);
+                    }
+                }
+            });
+            undos = registered;
+        }
+        undos.push(undo);
+    }
+
+    // Вне транзакции изменение уже зафиксировано, поэтому действие выполняется сразу
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,16 +1,29 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.storage.MissingReferences;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -18,23 +31,104 @@ import java.util.stream.Collectors;
 @Primary
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int RECENT_LIKES_CHUNK = 100;
+
+    // Фильм целиком за один запрос: MPA и названия жанров берутся из справочника,
+    // ID жанров собираются в упорядоченный массив, счётчик лайков хранится в films
+    private static final String FILM_SELECT = """
+            SELECT f.*,
+                   ARRAY(SELECT fg.genre_id FROM film_genres fg
+                         WHERE fg.film_id = f.id ORDER BY fg.genre_id) AS genre_ids
+            FROM films f
+            """;
+
     private final JdbcTemplate jdbcTemplate;
     private final FilmRowMapper filmRowMapper;
+    private final FilmLikeMatrix likeMatrix;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+
+    @PostConstruct
+    public void loadPopularityIndex() {
+        String sql = "SELECT id, likes_count, mpa_id, EXTRACT(YEAR FROM release_date) AS release_year FROM films";
+
+        Map<Integer, Integer> likesByFilm = new HashMap<>();
+        Map<Integer, Integer[]> mpaAndYear = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            int filmId = rs.getInt("id");
+            likesByFilm.put(filmId, rs.getInt("likes_count"));
+            mpaAndYear.put(filmId, new Integer[]{rs.getObject("mpa_id", Integer.class),
+                    rs.getObject("release_year", Integer.class)});
+        });
+        Map<Integer, Set<Integer>> genresByFilm = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id"));
+        });
+
+        Map<Integer, FilmPopularityIndex.Partitions> partitionsByFilm = new HashMap<>();
+        mpaAndYear.forEach((filmId, values) -> partitionsByFilm.put(filmId, new FilmPopularityIndex.Partitions(
+                Set.copyOf(genresByFilm.getOrDefault(filmId, Set.of())), values[0], values[1])));
+        popularityIndex.rebuild(likesByFilm, partitionsByFilm);
+        log.info("Индекс популярности построен: {} фильмов", likesByFilm.size());
+    }
 
     @Override
     public Film create(Film film) {
         log.info("Создание фильма: {}", film);
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "mpa_id")
                 .usingGeneratedKeyColumns("id");
 
         int filmId = simpleJdbcInsert.executeAndReturnKey(filmToMap(film)).intValue();
         film.setId(filmId);
         log.debug("Фильму присвоен ID: {}", filmId);
 
+        popularityIndex.put(filmId, 0, FilmPopularityIndex.Partitions.of(film));
+        TransactionHooks.onRollback(() -> popularityIndex.remove(filmId));
+
         return film;
     }
 
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        log.info("Пакетное создание {} фильмов", films.size());
+
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"})) {
+                for (Film film : films) {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setObject(3, film.getReleaseDate());
+                    statement.setInt(4, film.getDuration());
+                    statement.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // Ключи возвращаются в порядке строк пакета
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    Iterator<Film> iterator = films.iterator();
+                    while (keys.next()) {
+                        iterator.next().setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        for (Film film : films) {
+            int filmId = film.getId();
+            popularityIndex.put(filmId, 0, FilmPopularityIndex.Partitions.of(film));
+            TransactionHooks.onRollback(() -> popularityIndex.remove(filmId));
+        }
+
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
         log.info("Обновление фильма ID {}: {}", film.getId(), film);
@@ -48,150 +142,349 @@ public class FilmDbStorage implements FilmStorage {
                 film.getMpa().getId(),
                 film.getId());
 
+        // Жанры записывает сервис после обновления, но частные рейтинги переносятся уже здесь
+        int filmId = film.getId();
+        FilmPopularityIndex.Partitions previous =
+                popularityIndex.setPartitions(filmId, FilmPopularityIndex.Partitions.of(film));
+        if (previous != null) {
+            TransactionHooks.onRollback(() -> popularityIndex.setPartitions(filmId, previous));
+        }
+
         log.debug("Обновление жанров для фильма ID {}", film.getId());
 
         return film;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Film getById(int id) {
         log.debug("Получение фильма по ID: {}", id);
 
-        String sql = "SELECT f.*, m.name AS mpa_name, m.description AS mpa_description " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.id " +
-                "WHERE f.id = ?";
-        return jdbcTemplate.queryForObject(sql, filmRowMapper, id);
+        return jdbcTemplate.queryForObject(FILM_SELECT + "WHERE f.id = ?", filmRowMapper, id);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<Film> getAll() {
         log.debug("Получение всех фильмов");
 
-        // 1 запрос
-        String filmsSql = """
-                SELECT f.*, m.name AS mpa_name, m.description AS mpa_description,
-                       COUNT(fl.user_id) AS likes_count
-                FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.id
-                LEFT JOIN film_likes fl ON f.id = fl.film_id
-                GROUP BY f.id, m.id
-                """;
+        return jdbcTemplate.query(FILM_SELECT, filmRowMapper);
+    }
 
-        List<Film> films = jdbcTemplate.query(filmsSql, filmRowMapper);
-
-        // 1 запрос
-        String genresSql = """
-                SELECT fg.film_id, g.id, g.name
-                FROM film_genres fg
-                JOIN genres g ON fg.genre_id = g.id
-                WHERE fg.film_id IN (
-                    SELECT id FROM films
-                )
-                ORDER BY fg.film_id, g.id
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getPage(int afterId, int limit) {
+        log.debug("Получение страницы фильмов после ID {}, размер {}", afterId, limit);
+
+        // Диапазон по первичному ключу, глубина страницы не влияет на стоимость
+        String sql = FILM_SELECT + """
+                WHERE f.id > ?
+                ORDER BY f.id
+                LIMIT ?
                 """;
+        return jdbcTemplate.query(sql, filmRowMapper, afterId, limit);
+    }
 
-        Map<Integer, Set<Genre>> filmGenres = jdbcTemplate.query(genresSql, rs -> {
-            Map<Integer, Set<Genre>> result = new HashMap<>();
-            while (rs.next()) {
-                int filmId = rs.getInt("film_id");
-                Genre genre = new Genre(
-                        rs.getInt("id"),
-                        rs.getString("name")
-                );
-                result.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(genre);
-            }
-            return result;
-        });
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = FILM_SELECT + "WHERE f.id IN (%s)".formatted(ids.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
 
-        // Устанавливаем жанры для каждого фильма
-        films.forEach(f -> f.setGenres(filmGenres.getOrDefault(f.getId(), new LinkedHashSet<>())));
+        Map<Integer, Film> filmsById = new HashMap<>();
+        jdbcTemplate.query(sql, filmRowMapper).forEach(f -> filmsById.put(f.getId(), f));
 
+        // Восстанавливаем порядок запроса; отсутствующие фильмы пропускаем
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
         return films;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Film> consumer) {
+        log.debug("Потоковая выгрузка всех фильмов");
+
+        // Курсор только вперёд с ограниченным fetch size: в памяти находится только текущий фильм
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = prepareForwardOnly(connection, FILM_SELECT + "ORDER BY f.id");
+                 ResultSet films = statement.executeQuery()) {
+                int rowNum = 0;
+                while (films.next()) {
+                    consumer.accept(filmRowMapper.mapRow(films, rowNum++));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    @Transactional
     public void delete(int id) {
+        // Лайки удаляются каскадом, поэтому лайкнувшие читаются до удаления фильма
+        Set<Integer> likers = getFilmLikes(id);
         String sql = "DELETE FROM films WHERE id = ?";
         jdbcTemplate.update(sql, id);
+
+        int likes = popularityIndex.getLikes(id);
+        FilmPopularityIndex.Partitions partitions = popularityIndex.getPartitions(id);
+        popularityIndex.remove(id);
+        if (partitions != null) {
+            TransactionHooks.onRollback(() -> popularityIndex.put(id, likes, partitions));
+        }
+        similarityIndex.remove(id);
+        TransactionHooks.onRollback(() -> similarityIndex.markStale(id));
+        List<Integer> removedLikes = likeMatrix.removeFilm(id, likers);
+        TransactionHooks.onRollback(() -> removedLikes.forEach(userId -> likeMatrix.addLike(id, userId)));
     }
 
     @Override
+    @Transactional
     public void addLike(int filmId, int userId) {
         log.info("Добавление лайка фильму ID {} от пользователя {}", filmId, userId);
 
-        String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+        // Повторный лайк ничего не вставляет и не увеличивает счётчик;
+        // отсутствующий фильм или пользователь определяется по внешнему ключу
+        String sql = """
+                INSERT INTO film_likes (film_id, user_id)
+                SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)
+                """;
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(sql, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return; // Такой же лайк одновременно записан параллельным запросом
+        } catch (DataIntegrityViolationException e) {
+            throw MissingReferences.translate(e, "Фильм или пользователь не найдены");
+        }
+        if (inserted > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+            popularityIndex.adjust(filmId, 1);
+            TransactionHooks.onRollback(() -> popularityIndex.adjust(filmId, -1));
+            if (likeMatrix.addLike(filmId, userId)) {
+                TransactionHooks.onRollback(() -> likeMatrix.removeLike(filmId, userId));
+            }
+            if (similarityIndex.addLike(filmId, userId)) {
+                TransactionHooks.onRollback(() -> similarityIndex.markStale(filmId));
+            }
+        }
     }
 
     @Override
+    @Transactional
     public void removeLike(int filmId, int userId) {
         log.info("Удаление лайка фильму ID {} от пользователя {}", filmId, userId);
 
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        if (jdbcTemplate.update(sql, filmId, userId) > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+            popularityIndex.adjust(filmId, -1);
+            TransactionHooks.onRollback(() -> popularityIndex.adjust(filmId, 1));
+            if (likeMatrix.removeLike(filmId, userId)) {
+                TransactionHooks.onRollback(() -> likeMatrix.addLike(filmId, userId));
+            }
+            if (similarityIndex.removeLike(filmId, userId)) {
+                TransactionHooks.onRollback(() -> similarityIndex.markStale(filmId));
+            }
+            return;
+        }
+        // Удалять было нечего: отличаем отсутствие лайка от отсутствия фильма или пользователя
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?) AND EXISTS (SELECT 1 FROM users WHERE id = ?)",
+                Boolean.class, filmId, userId);
+        if (!Boolean.TRUE.equals(exists)) {
+            throw new NotFoundException("Фильм или пользователь не найдены");
+        }
     }
 
     @Override
-    public List<Film> getPopularFilms(int count) {
-        log.info("Получение {} популярных фильмов с жанрами", count);
-
-        // 1 Запрос
-        String filmsSql = """
-                SELECT f.*, m.name AS mpa_name, m.description AS mpa_description,
-                       COUNT(fl.user_id) AS likes_count
-                FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.id
-                LEFT JOIN film_likes fl ON f.id = fl.film_id
-                GROUP BY f.id, m.id
-                ORDER BY likes_count DESC, f.id DESC
-                LIMIT ?
-                """;
-
-        List<Film> films = jdbcTemplate.query(filmsSql, filmRowMapper, count);
-
-        if (films.isEmpty()) {
-            return films;
+    @Transactional
+    public void applyLikes(List<LikeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        log.debug("Запись пакета лайков: {} событий", events.size());
+
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> unlikes = new ArrayList<>();
+        Set<Integer> affectedFilms = new TreeSet<>();
+        for (LikeEvent event : events) {
+            (event.liked() ? likes : unlikes).add(new Object[]{event.filmId(), event.userId()});
+            affectedFilms.add(event.filmId());
         }
 
-        // 1 Запрос
-        String genresSql = """
-                SELECT fg.film_id, g.id, g.name
-                FROM film_genres fg
-                JOIN genres g ON fg.genre_id = g.id
-                WHERE fg.film_id IN (%s)
-                ORDER BY fg.film_id, g.id
-                """.formatted(
-                films.stream()
-                        .map(f -> String.valueOf(f.getId()))
-                        .collect(Collectors.joining(","))
-        );
-
-        Map<Integer, Set<Genre>> filmGenres = jdbcTemplate.query(genresSql, rs -> {
-            Map<Integer, Set<Genre>> result = new HashMap<>();
-            while (rs.next()) {
-                int filmId = rs.getInt("film_id");
-                Genre genre = new Genre(
-                        rs.getInt("id"),
-                        rs.getString("name")
-                );
-                result.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(genre);
-            }
-            return result;
+        // Лайки к несуществующим фильмам или от несуществующих пользователей пропускаются,
+        // повторный лайк ничего не меняет
+        int[] merged = jdbcTemplate.batchUpdate("""
+                MERGE INTO film_likes (film_id, user_id)
+                KEY (film_id, user_id)
+                SELECT f.id, u.id FROM films f JOIN users u ON u.id = ? WHERE f.id = ?
+                """, likes.stream().map(args -> new Object[]{args[1], args[0]}).toList());
+        int[] deleted = jdbcTemplate.batchUpdate("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", unlikes);
+        applyToLikeMatrix(likes, merged, true);
+        applyToLikeMatrix(unlikes, deleted, false);
+        similarityIndex.recompute(affectedFilms);
+        TransactionHooks.onRollback(() -> affectedFilms.forEach(similarityIndex::markStale));
+
+        // Счётчики пересчитываются один раз на фильм, а не на каждое событие
+        List<Object[]> filmIds = affectedFilms.stream().map(id -> new Object[]{id}).toList();
+        jdbcTemplate.batchUpdate("""
+                UPDATE films SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = films.id)
+                WHERE id = ?
+                """, filmIds);
+
+        String ids = affectedFilms.stream().map(String::valueOf).collect(Collectors.joining(","));
+        jdbcTemplate.query("SELECT id, likes_count FROM films WHERE id IN (" + ids + ")", rs -> {
+            int filmId = rs.getInt("id");
+            int previous = popularityIndex.getLikes(filmId);
+            popularityIndex.put(filmId, rs.getInt("likes_count"));
+            TransactionHooks.onRollback(() -> popularityIndex.put(filmId, previous));
         });
+    }
 
-        // Устанавливаем жанры для каждого фильма
-        films.forEach(f -> f.setGenres(filmGenres.getOrDefault(f.getId(), new LinkedHashSet<>())));
+    // Пропущенные строки пакета (лайк несуществующего фильма или пользователя, удаление отсутствующего лайка)
+    // матрицу не меняют; повторный лайк матрица отбрасывает сама
+    private void applyToLikeMatrix(List<Object[]> likes, int[] updated, boolean liked) {
+        for (int i = 0; i < likes.size(); i++) {
+            if (updated[i] == 0) {
+                continue;
+            }
+            int filmId = (int) likes.get(i)[0];
+            int userId = (int) likes.get(i)[1];
+            if (liked ? likeMatrix.addLike(filmId, userId) : likeMatrix.removeLike(filmId, userId)) {
+                TransactionHooks.onRollback(() -> {
+                    if (liked) {
+                        likeMatrix.removeLike(filmId, userId);
+                    } else {
+                        likeMatrix.addLike(filmId, userId);
+                    }
+                });
+            }
+        }
+    }
 
-        return films;
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getPopularFilms(int count, int offset, PopularityFilter filter) {
+        log.info("Получение {} популярных фильмов с жанрами, смещение {}, фильтр {}", count, offset, filter);
+
+        // Порядок берётся из индекса популярности, без агрегации по film_likes;
+        // фильмы, удалённые в обход индекса, пропускаются
+        return getByIds(popularityIndex.top(offset, count, filter));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Set<Integer> getFilmLikes(int filmId) {
         String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
         return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, filmId));
     }
 
+    // Отсортированные ID фильмов читаются только из индекса (user_id, film_id)
+    @Override
+    @Transactional(readOnly = true)
+    public int[] getLikedFilmIds(int userId) {
+        String sql = "SELECT film_id FROM film_likes WHERE user_id = ? ORDER BY film_id";
+        return jdbcTemplate.queryForList(sql, Integer.class, userId).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Последний ID полной страницы лайков определяется только по индексу (user_id, film_id)
+    @Override
+    @Transactional(readOnly = true)
+    public OptionalInt getLikedPageLastId(int userId, int afterFilmId, int limit) {
+        String sql = """
+                SELECT film_id FROM film_likes
+                WHERE user_id = ? AND film_id > ?
+                ORDER BY film_id
+                OFFSET ? ROWS FETCH FIRST 1 ROW ONLY
+                """;
+        List<Integer> lastId = jdbcTemplate.queryForList(sql, Integer.class, userId, afterFilmId, limit - 1);
+        return lastId.isEmpty() ? OptionalInt.empty() : OptionalInt.of(lastId.getFirst());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamLikedFilms(int userId, int afterFilmId, int upToFilmId, int limit, Consumer<Film> consumer) {
+        String sql = FILM_SELECT + """
+                JOIN film_likes fl ON fl.film_id = f.id
+                WHERE fl.user_id = ? AND fl.film_id > ? AND fl.film_id <= ?
+                ORDER BY fl.film_id
+                LIMIT ?
+                """;
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = prepareForwardOnly(connection, sql)) {
+                statement.setInt(1, userId);
+                statement.setInt(2, afterFilmId);
+                statement.setInt(3, upToFilmId);
+                statement.setInt(4, limit);
+                try (ResultSet films = statement.executeQuery()) {
+                    int rowNum = 0;
+                    while (films.next()) {
+                        consumer.accept(filmRowMapper.mapRow(films, rowNum++));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Для каждого пользователя — отдельная ветка UNION ALL с LIMIT: каждая читает короткий диапазон
+    // индекса (user_id, liked_at DESC), а все ветки уходят в базу одним запросом на группу пользователей
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecentLikes> getRecentLikes(int[] userIds, int perUser) {
+        String branch = "(SELECT user_id, film_id, liked_at FROM film_likes WHERE user_id = ? "
+                + "ORDER BY liked_at DESC, film_id LIMIT ?)";
+
+        Map<Integer, List<long[]>> likesByUser = new HashMap<>();
+        for (int from = 0; from < userIds.length; from += RECENT_LIKES_CHUNK) {
+            int to = Math.min(from + RECENT_LIKES_CHUNK, userIds.length);
+            String sql = String.join(" UNION ALL ", Collections.nCopies(to - from, branch));
+            Object[] args = new Object[(to - from) * 2];
+            for (int i = from; i < to; i++) {
+                args[(i - from) * 2] = userIds[i];
+                args[(i - from) * 2 + 1] = perUser;
+            }
+            jdbcTemplate.query(sql, rs -> {
+                likesByUser.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+                        .add(new long[]{rs.getInt("film_id"), rs.getTimestamp("liked_at").getTime()});
+            }, args);
+        }
+
+        List<RecentLikes> result = new ArrayList<>(likesByUser.size());
+        likesByUser.forEach((userId, likes) -> {
+            likes.sort((a, b) -> Long.compare(b[1], a[1]));
+            int[] filmIds = new int[likes.size()];
+            long[] likedAt = new long[likes.size()];
+            for (int i = 0; i < likes.size(); i++) {
+                filmIds[i] = (int) likes.get(i)[0];
+                likedAt[i] = likes.get(i)[1];
+            }
+            result.add(new RecentLikes(userId, filmIds, likedAt));
+        });
+        return result;
+    }
+
+    private PreparedStatement prepareForwardOnly(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(STREAM_FETCH_SIZE);
+        return statement;
+    }
+
     private Map<String, Object> filmToMap(Film film) {
         Map<String, Object> values = new HashMap<>();
         values.put("name", film.getName());
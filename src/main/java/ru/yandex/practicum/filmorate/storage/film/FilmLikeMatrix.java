@@ -0,0 +1,366 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.IntIntCounter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Разреженная матрица совместных лайков фильмов в памяти процесса: для каждого фильма хранится строка —
+ * отсортированный массив ID фильмов, которые лайкали те же пользователи, и число таких пользователей.
+ * Рядом хранятся отсортированные лайки каждого пользователя, по ним строки обновляются инкрементально.
+ * Строки не изменяются после публикации (подменяются копией), а обе карты публикуются вместе через volatile
+ * снимок, поэтому читатели работают без блокировок и не видят наполовину перестроенную матрицу.
+ * Под блокировкой лайк меняет только массив лайков пользователя; перезапись строк (O(лайков пользователя
+ * × длина строки)) выполняется в отдельном потоке в порядке лайков, поэтому рекомендации отстают
+ * от лайков на время обработки очереди. Матрица целиком перестраивается при старте и по расписанию
+ * (filmorate.recommendations.rebuild-interval), строки считаются параллельно в ForkJoin.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmLikeMatrix {
+    private static final int[] EMPTY = new int[0];
+    private static final Row EMPTY_ROW = new Row(EMPTY, EMPTY);
+
+    // Сколько строк матрицы считается в одной задаче ForkJoin
+    private static final int ROWS_PER_TASK = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    // Строки одного снимка меняет только этот поток, поэтому их обновления не пересекаются
+    private final ExecutorService rowUpdater = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "like-matrix-rows");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Изменения, пришедшие во время перестроения; повторяются поверх нового снимка
+    private List<long[]> pending;
+
+    private record Row(int[] filmIds, int[] counts) {
+    }
+
+    private record Snapshot(Map<Integer, int[]> likesByUser, Map<Integer, Row> rows) {
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.recommendations.rebuild-interval:PT1H}",
+            fixedDelayString = "${filmorate.recommendations.rebuild-interval:PT1H}")
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+
+        // Лайк упакован в long (user_id в старших битах), после сортировки лайки сгруппированы по пользователю
+        LongList byUser = new LongList();
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_likes", rs -> {
+            byUser.add(rs.getInt("user_id"), rs.getInt("film_id"));
+        });
+        LongList byFilm = byUser.swapped();
+        byUser.sort();
+        byFilm.sort();
+        Map<Integer, int[]> loadedLikes = byUser.group();
+        Map<Integer, int[]> likersByFilm = byFilm.group();
+
+        int[] filmIds = likersByFilm.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Row[] loadedRows = new Row[filmIds.length];
+        ForkJoinPool.commonPool().invoke(
+                new RowTask(filmIds, likersByFilm, loadedLikes, loadedRows, 0, filmIds.length));
+
+        Map<Integer, Row> rows = new ConcurrentHashMap<>(filmIds.length * 2);
+        for (int i = 0; i < filmIds.length; i++) {
+            if (loadedRows[i].filmIds().length > 0) {
+                rows.put(filmIds[i], loadedRows[i]);
+            }
+        }
+        Snapshot rebuilt = new Snapshot(new ConcurrentHashMap<>(loadedLikes), rows);
+        synchronized (this) {
+            for (long[] change : pending) {
+                apply(rebuilt, (int) change[0], (int) change[1], change[2] > 0);
+            }
+            snapshot = rebuilt;
+            pending = null;
+        }
+        log.info("Матрица совместных лайков построена: {} лайков, {} фильмов, {} мс",
+                byUser.size, rows.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rowUpdater.shutdown();
+    }
+
+    /**
+     * Ждёт, пока применятся обновления строк, поставленные в очередь до вызова.
+     */
+    public void awaitRowUpdates() {
+        try {
+            rowUpdater.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int[] getLikedFilms(int userId) {
+        return snapshot.likesByUser().getOrDefault(userId, EMPTY);
+    }
+
+    // Изменения применяются сразу и откатываются вместе с транзакцией
+    public synchronized boolean addLike(int filmId, int userId) {
+        return record(filmId, userId, true);
+    }
+
+    public synchronized boolean removeLike(int filmId, int userId) {
+        return record(filmId, userId, false);
+    }
+
+    /**
+     * Убирает строку и столбец удалённого фильма: снимает лайки всех его пользователей.
+     * Возвращает пользователей, чьи лайки были сняты, чтобы удаление можно было откатить.
+     */
+    public synchronized List<Integer> removeFilm(int filmId, Collection<Integer> likers) {
+        List<Integer> removed = new ArrayList<>(likers.size());
+        for (int userId : likers) {
+            if (record(filmId, userId, false)) {
+                removed.add(userId);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Оценки фильмов, которые пользователь ещё не лайкал: сумма совместных лайков с каждым его фильмом.
+     * Читаются только строки фильмов пользователя.
+     */
+    public IntIntCounter scoreUnseen(int userId) {
+        Snapshot current = snapshot;
+        int[] liked = current.likesByUser().getOrDefault(userId, EMPTY);
+        IntIntCounter scores = new IntIntCounter(256);
+        for (int filmId : liked) {
+            Row row = current.rows().getOrDefault(filmId, EMPTY_ROW);
+            for (int i = 0; i < row.filmIds().length; i++) {
+                if (Arrays.binarySearch(liked, row.filmIds()[i]) < 0) {
+                    scores.add(row.filmIds()[i], row.counts()[i]);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private boolean record(int filmId, int userId, boolean liked) {
+        if (!apply(snapshot, filmId, userId, liked)) {
+            return false;
+        }
+        if (pending != null) {
+            pending.add(new long[]{filmId, userId, liked ? 1 : 0});
+        }
+        return true;
+    }
+
+    // Лайки пользователя меняются сразу, а строки — в потоке rowUpdater
+    private boolean apply(Snapshot target, int filmId, int userId, boolean liked) {
+        Map<Integer, int[]> likesByUser = target.likesByUser();
+        int[] current = likesByUser.getOrDefault(userId, EMPTY);
+        int position = Arrays.binarySearch(current, filmId);
+        if (liked == (position >= 0)) {
+            return false;
+        }
+
+        int[] others = liked ? current : withoutIndex(current, position);
+        int delta = liked ? 1 : -1;
+        if (others.length > 0) {
+            rowUpdater.execute(() -> updateRows(target.rows(), filmId, others, delta));
+        }
+
+        if (liked) {
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = filmId;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            likesByUser.put(userId, updated);
+        } else if (others.length == 0) {
+            likesByUser.remove(userId);
+        } else {
+            likesByUser.put(userId, others);
+        }
+        return true;
+    }
+
+    // Лайк связывает фильм с каждым фильмом пользователя: строка фильма меняется целиком,
+    // в строки остальных фильмов добавляется или убирается одна ячейка
+    private static void updateRows(Map<Integer, Row> rows, int filmId, int[] others, int delta) {
+        int[] self = {filmId};
+        updateRow(rows, filmId, others, delta);
+        for (int otherId : others) {
+            updateRow(rows, otherId, self, delta);
+        }
+    }
+
+    private static void updateRow(Map<Integer, Row> rows, int filmId, int[] sortedIds, int delta) {
+        Row updated = merge(rows.getOrDefault(filmId, EMPTY_ROW), sortedIds, delta);
+        if (updated.filmIds().length == 0) {
+            rows.remove(filmId);
+        } else {
+            rows.put(filmId, updated);
+        }
+    }
+
+    // Слияние строки с отсортированным списком ID за O(n + m); ячейки с нулевым счётчиком удаляются
+    private static Row merge(Row row, int[] sortedIds, int delta) {
+        int[] ids = new int[row.filmIds().length + sortedIds.length];
+        int[] counts = new int[ids.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < row.filmIds().length || j < sortedIds.length) {
+            int id;
+            int count;
+            if (j == sortedIds.length || i < row.filmIds().length && row.filmIds()[i] < sortedIds[j]) {
+                id = row.filmIds()[i];
+                count = row.counts()[i++];
+            } else if (i == row.filmIds().length || sortedIds[j] < row.filmIds()[i]) {
+                id = sortedIds[j++];
+                count = delta;
+            } else {
+                id = row.filmIds()[i];
+                count = row.counts()[i++] + delta;
+                j++;
+            }
+            if (count > 0) {
+                ids[n] = id;
+                counts[n++] = count;
+            }
+        }
+        return new Row(Arrays.copyOf(ids, n), Arrays.copyOf(counts, n));
+    }
+
+    private static int[] withoutIndex(int[] array, int index) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    // Строка фильма — все фильмы его лайкнувших пользователей; после сортировки повторы сворачиваются в счётчики
+    private static class RowTask extends RecursiveAction {
+        private final int[] filmIds;
+        private final Map<Integer, int[]> likersByFilm;
+        private final Map<Integer, int[]> likesByUser;
+        private final Row[] result;
+        private final int from;
+        private final int to;
+
+        RowTask(int[] filmIds, Map<Integer, int[]> likersByFilm, Map<Integer, int[]> likesByUser, Row[] result,
+                int from, int to) {
+            this.filmIds = filmIds;
+            this.likersByFilm = likersByFilm;
+            this.likesByUser = likesByUser;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowTask(filmIds, likersByFilm, likesByUser, result, from, middle),
+                        new RowTask(filmIds, likersByFilm, likesByUser, result, middle, to));
+                return;
+            }
+            int[] buffer = new int[1024];
+            for (int k = from; k < to; k++) {
+                int filmId = filmIds[k];
+                int size = 0;
+                for (int userId : likersByFilm.get(filmId)) {
+                    int[] liked = likesByUser.get(userId);
+                    if (buffer.length < size + liked.length) {
+                        buffer = Arrays.copyOf(buffer, Math.max(size + liked.length, buffer.length * 2));
+                    }
+                    for (int otherId : liked) {
+                        if (otherId != filmId) {
+                            buffer[size++] = otherId;
+                        }
+                    }
+                }
+                Arrays.sort(buffer, 0, size);
+
+                int[] ids = new int[size];
+                int[] counts = new int[size];
+                int n = 0;
+                for (int i = 0; i < size; i++) {
+                    if (n > 0 && ids[n - 1] == buffer[i]) {
+                        counts[n - 1]++;
+                    } else {
+                        ids[n] = buffer[i];
+                        counts[n++] = 1;
+                    }
+                }
+                result[k] = new Row(Arrays.copyOf(ids, n), Arrays.copyOf(counts, n));
+            }
+        }
+    }
+
+    // Пары (ключ, значение) упакованы в long, поэтому сортируются по ключу, затем по значению
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(int key, int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ((long) key << 32) | value;
+        }
+
+        private LongList swapped() {
+            LongList result = new LongList();
+            result.values = new long[Math.max(size, 1)];
+            for (int i = 0; i < size; i++) {
+                result.add((int) values[i], (int) (values[i] >>> 32));
+            }
+            return result;
+        }
+
+        private void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        // Отсортированный список превращается в отсортированные массивы значений по ключам
+        private Map<Integer, int[]> group() {
+            Map<Integer, int[]> groups = new HashMap<>();
+            int start = 0;
+            for (int i = 0; i < size; i++) {
+                int key = (int) (values[i] >>> 32);
+                if (i + 1 == size || (int) (values[i + 1] >>> 32) != key) {
+                    int[] group = new int[i + 1 - start];
+                    for (int k = start; k <= i; k++) {
+                        group[k - start] = (int) values[k];
+                    }
+                    groups.put(key, group);
+                    start = i + 1;
+                }
+            }
+            return groups;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который поддерживается инкрементально.
+ * Порядок совпадает с SQL-вариантом: likes_count DESC, id DESC.
+ * Кроме общего рейтинга ведутся рейтинги по каждому жанру, MPA рейтингу и году выхода;
+ * запрос с несколькими фильтрами обходит подходящие рейтинги совместно в порядке популярности,
+ * перескакивая через ceiling к следующему общему фильму. В худшем случае (рейтинги почти не пересекаются
+ * и чередуются) это O(m log n), где m — размер наименьшего рейтинга, а не O(offset + count) как без фильтров.
+ * Добавление, удаление и изменение счётчика — O(log n) на каждый рейтинг фильма.
+ * <p>
+ * Известные ограничения:
+ * <ul>
+ *     <li>{@code top} пропускает первые {@code offset} записей перебором, то есть стоит O(offset + count):
+ *     TreeSet не умеет переходить к позиции по номеру, а страницы популярного в API неглубокие;</li>
+ *     <li>изменения видны другим потокам до коммита транзакции, которая их внесла
+ *     (см. {@link ru.yandex.practicum.filmorate.storage.TransactionHooks}): при откате они компенсируются,
+ *     а до этого рейтинг может кратковременно учитывать незафиксированный лайк.</li>
+ * </ul>
+ */
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::likes).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::filmId).reversed());
+
+    private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byMpa = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+
+    /**
+     * Признаки фильма, по которым он попадает в частные рейтинги.
+     */
+    public record Partitions(Set<Integer> genreIds, Integer mpaId, Integer year) {
+        public static final Partitions NONE = new Partitions(Set.of(), null, null);
+
+        public static Partitions of(Film film) {
+            Set<Integer> genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            return new Partitions(genreIds,
+                    film.getMpa() != null ? film.getMpa().getId() : null,
+                    film.getReleaseDate() != null ? film.getReleaseDate().getYear() : null);
+        }
+    }
+
+    public synchronized void rebuild(Map<Integer, Integer> likesByFilm, Map<Integer, Partitions> partitionsByFilm) {
+        ranking.clear();
+        entries.clear();
+        byGenre.clear();
+        byMpa.clear();
+        byYear.clear();
+        likesByFilm.forEach((filmId, likes) ->
+                put(filmId, likes, partitionsByFilm.getOrDefault(filmId, Partitions.NONE)));
+    }
+
+    public synchronized void put(int filmId, int likes, Partitions partitions) {
+        Entry previous = entries.remove(filmId);
+        if (previous != null) {
+            unlink(previous);
+        }
+        Entry entry = new Entry(filmId, likes, partitions);
+        entries.put(filmId, entry);
+        ranking.add(entry);
+        for (int genreId : partitions.genreIds()) {
+            byGenre.computeIfAbsent(genreId, id -> new TreeSet<>(ORDER)).add(entry);
+        }
+        if (partitions.mpaId() != null) {
+            byMpa.computeIfAbsent(partitions.mpaId(), id -> new TreeSet<>(ORDER)).add(entry);
+        }
+        if (partitions.year() != null) {
+            byYear.computeIfAbsent(partitions.year(), id -> new TreeSet<>(ORDER)).add(entry);
+        }
+    }
+
+    public synchronized void put(int filmId, int likes) {
+        Entry previous = entries.get(filmId);
+        put(filmId, likes, previous != null ? previous.partitions() : Partitions.NONE);
+    }
+
+    // Возвращает прежние признаки, чтобы изменение можно было откатить
+    public synchronized Partitions setPartitions(int filmId, Partitions partitions) {
+        Entry previous = entries.get(filmId);
+        if (previous == null) {
+            return null;
+        }
+        put(filmId, previous.likes(), partitions);
+        return previous.partitions();
+    }
+
+    public synchronized Partitions getPartitions(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry != null ? entry.partitions() : null;
+    }
+
+    public synchronized void remove(int filmId) {
+        Entry previous = entries.remove(filmId);
+        if (previous != null) {
+            unlink(previous);
+        }
+    }
+
+    public synchronized void adjust(int filmId, int delta) {
+        Entry previous = entries.get(filmId);
+        if (previous != null) {
+            put(filmId, Math.max(0, previous.likes() + delta));
+        }
+    }
+
+    public synchronized int getLikes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry != null ? entry.likes() : 0;
+    }
+
+    public synchronized boolean contains(int filmId) {
+        return entries.containsKey(filmId);
+    }
+
+    public synchronized List<Integer> top(int offset, int count) {
+        return top(offset, count, PopularityFilter.NONE);
+    }
+
+    public synchronized List<Integer> top(int offset, int count, PopularityFilter filter) {
+        List<NavigableSet<Entry>> partitions = new ArrayList<>(3);
+        if (filter.genreId() != null) {
+            partitions.add(byGenre.getOrDefault(filter.genreId(), Collections.emptyNavigableSet()));
+        }
+        if (filter.mpaId() != null) {
+            partitions.add(byMpa.getOrDefault(filter.mpaId(), Collections.emptyNavigableSet()));
+        }
+        if (filter.year() != null) {
+            partitions.add(byYear.getOrDefault(filter.year(), Collections.emptyNavigableSet()));
+        }
+        if (partitions.isEmpty()) {
+            partitions.add(ranking);
+        }
+        partitions.sort(Comparator.comparingInt(Set::size));
+
+        NavigableSet<Entry> driver = partitions.get(0);
+        List<NavigableSet<Entry>> others = partitions.subList(1, partitions.size());
+        List<Integer> result = new ArrayList<>(Math.min(count, driver.size()));
+        int skipped = 0;
+        Entry candidate = driver.isEmpty() ? null : driver.first();
+        while (candidate != null && result.size() < count) {
+            // Сдвигаем кандидата до ближайшего фильма, не раньше него, в каждом из остальных рейтингов
+            Entry aligned = candidate;
+            for (NavigableSet<Entry> partition : others) {
+                Entry next = partition.ceiling(aligned);
+                if (next == null) {
+                    return result;
+                }
+                if (ORDER.compare(next, aligned) > 0) {
+                    aligned = next;
+                }
+            }
+            if (aligned != candidate) {
+                candidate = driver.ceiling(aligned);
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(candidate.filmId());
+            }
+            candidate = driver.higher(candidate);
+        }
+        return result;
+    }
+
+    private void unlink(Entry entry) {
+        ranking.remove(entry);
+        Partitions partitions = entry.partitions();
+        for (int genreId : partitions.genreIds()) {
+            removeFrom(byGenre, genreId, entry);
+        }
+        if (partitions.mpaId() != null) {
+            removeFrom(byMpa, partitions.mpaId(), entry);
+        }
+        if (partitions.year() != null) {
+            removeFrom(byYear, partitions.year(), entry);
+        }
+    }
+
+    private static void removeFrom(Map<Integer, NavigableSet<Entry>> rankings, int key, Entry entry) {
+        NavigableSet<Entry> partition = rankings.get(key);
+        if (partition != null && partition.remove(entry) && partition.isEmpty()) {
+            rankings.remove(key);
+        }
+    }
+
+    private record Entry(int filmId, int likes, Partitions partitions) {
+    }
+}
@@ -0,0 +1,299 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Похожие фильмы по мере Жаккара множеств лайкнувших пользователей, оценённой MinHash-сигнатурами.
+ * Сигнатура фильма — SIGNATURE_SIZE минимумов хешей ID пользователей, её размер не зависит от числа лайков.
+ * Кандидаты ищутся через LSH: сигнатура делится на BANDS полос, фильмы с совпадающей полосой попадают
+ * в одну корзину. Сигнатуры и корзины не изменяются после публикации (подменяются копией),
+ * поэтому читатели работают без блокировок; запись сериализуется.
+ * Лайк обновляет сигнатуру за O(SIGNATURE_SIZE). Снятие лайка пересчитывает сигнатуру по базе,
+ * только если этот пользователь давал минимум хотя бы в одной позиции. Запросы к базе выполняются
+ * вне блокировки, под ней только публикуются результаты; если фильм за время запроса изменился,
+ * результат отбрасывается, а фильм остаётся устаревшим. Лайк публикуется до коммита, поэтому пересчёт
+ * на другом соединении может его не увидеть и затереть: после коммита лайка проверяется, не публиковал ли
+ * пересчёт фильм позже, и тогда фильм помечается устаревшим. Устаревшие фильмы пересчитываются
+ * по расписанию (filmorate.similar.stale-refresh-interval), поиск их не ждёт.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSimilarityIndex {
+    private static final int BANDS = 32;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS_PER_BAND;
+    private static final int[] SEEDS = new SplittableRandom(0x5EEDL).ints(SIGNATURE_SIZE).toArray();
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, int[]> signatures = new ConcurrentHashMap<>();
+    // Ключ корзины — номер полосы в старших битах и хеш полосы в младших; фильмы в корзине отсортированы
+    private final Map<Long, int[]> buckets = new ConcurrentHashMap<>();
+    // Фильмы, сигнатуры которых устарели после отката транзакции; пересчитываются по расписанию
+    private final Set<Integer> stale = ConcurrentHashMap.newKeySet();
+    // Номер последнего изменения фильма: пересчёт по базе публикуется, только если фильм не менялся
+    // во время запроса. Номера берутся из общего счётчика, поэтому запись можно удалить без риска ABA
+    private final Map<Integer, Long> versions = new HashMap<>();
+    // Номер, с которым пересчёт по базе последний раз опубликовал сигнатуру фильма
+    private final Map<Integer, Long> recomputedVersions = new HashMap<>();
+    private long lastVersion;
+
+    @PostConstruct
+    public void load() {
+        Map<Integer, int[]> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes", rs -> {
+            int[] signature = loaded.computeIfAbsent(rs.getInt("film_id"), id -> emptySignature());
+            addToSignature(signature, rs.getInt("user_id"));
+        });
+
+        synchronized (this) {
+            signatures.clear();
+            buckets.clear();
+            stale.clear();
+            versions.clear();
+            recomputedVersions.clear();
+            loaded.forEach(this::publish);
+        }
+        log.info("Индекс похожих фильмов построен: {} фильмов, {} корзин", signatures.size(), buckets.size());
+    }
+
+    public synchronized boolean addLike(int filmId, int userId) {
+        int[] current = signatures.get(filmId);
+        int[] updated = current != null ? current.clone() : emptySignature();
+        if (!addToSignature(updated, userId)) {
+            return false;
+        }
+        publish(filmId, updated);
+        verifyAfterCommit(filmId, versions.get(filmId));
+        return true;
+    }
+
+    // Вызывается в транзакции удаления, чтобы пересчёт по базе уже не видел снятый лайк
+    public boolean removeLike(int filmId, int userId) {
+        int[] current = signatures.get(filmId);
+        if (current == null) {
+            return false;
+        }
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (current[i] == hash(userId, i)) {
+                recompute(Set.of(filmId));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void remove(int filmId) {
+        publish(filmId, null);
+        versions.remove(filmId);
+        recomputedVersions.remove(filmId);
+    }
+
+    // Сигнатуры фильмов пересчитываются по текущему состоянию базы одним запросом вне блокировки;
+    // в транзакции снятия лайка или пакетной записи запрос видит её изменения
+    public void recompute(Set<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> readVersions = new HashMap<>();
+        synchronized (this) {
+            for (int filmId : filmIds) {
+                long version = ++lastVersion;
+                versions.put(filmId, version);
+                readVersions.put(filmId, version);
+            }
+        }
+
+        Map<Integer, int[]> loaded = new HashMap<>();
+        String ids = filmIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes WHERE film_id IN (" + ids + ")", rs -> {
+            int[] signature = loaded.computeIfAbsent(rs.getInt("film_id"), id -> emptySignature());
+            addToSignature(signature, rs.getInt("user_id"));
+        });
+
+        synchronized (this) {
+            for (int filmId : filmIds) {
+                // Фильм изменился, пока шёл запрос: прочитанное состояние могло устареть
+                if (!readVersions.get(filmId).equals(versions.get(filmId))) {
+                    stale.add(filmId);
+                    continue;
+                }
+                int[] signature = loaded.get(filmId);
+                stale.remove(filmId);
+                if (signature == null && !signatures.containsKey(filmId)) {
+                    // У фильма нет лайков или он удалён: хранить его номера незачем
+                    versions.remove(filmId);
+                    recomputedVersions.remove(filmId);
+                    continue;
+                }
+                publish(filmId, signature);
+                long version = versions.get(filmId);
+                recomputedVersions.put(filmId, version);
+                // Пересчёт внутри транзакции лайков видит её незафиксированные изменения
+                verifyAfterCommit(filmId, version);
+            }
+        }
+    }
+
+    // Если после изменения до коммита сигнатуру опубликовал пересчёт, он мог прочитать базу без этого
+    // изменения: фильм пересчитывается заново уже по зафиксированному состоянию
+    private void verifyAfterCommit(int filmId, long version) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                if (recomputedVersions.getOrDefault(filmId, Long.MIN_VALUE) > version) {
+                    stale.add(filmId);
+                }
+            }
+        });
+    }
+
+    // Компенсация для отката: точное состояние восстанавливается по базе после завершения транзакции
+    public void markStale(int filmId) {
+        stale.add(filmId);
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.similar.stale-refresh-interval:PT1S}",
+            fixedDelayString = "${filmorate.similar.stale-refresh-interval:PT1S}")
+    public void refreshStale() {
+        if (!stale.isEmpty()) {
+            recompute(Set.copyOf(stale));
+        }
+    }
+
+    /**
+     * Фильмы с наибольшей оценкой сходства: по убыванию доли совпавших позиций сигнатуры,
+     * при равенстве — по возрастанию ID. Сравниваются только фильмы из общих LSH-корзин.
+     */
+    public int[] findSimilar(int filmId, int limit) {
+        int[] signature = signatures.get(filmId);
+        if (signature == null) {
+            return EMPTY;
+        }
+
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            for (int candidateId : buckets.getOrDefault(bucketKey(signature, band), EMPTY)) {
+                if (candidateId != filmId) {
+                    candidates.add(candidateId);
+                }
+            }
+        }
+
+        // Число совпадений в старших битах, ID — в младших, чтобы отсортировать без создания объектов
+        long[] packed = new long[candidates.size()];
+        int n = 0;
+        for (int candidateId : candidates) {
+            int[] other = signatures.get(candidateId);
+            if (other == null) {
+                continue;
+            }
+            int matches = 0;
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                if (signature[i] == other[i]) {
+                    matches++;
+                }
+            }
+            packed[n++] = ((long) matches << 32) | (Integer.MAX_VALUE - candidateId);
+        }
+        Arrays.sort(packed, 0, n);
+        int[] result = new int[Math.min(limit, n)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.MAX_VALUE - (int) packed[n - 1 - i];
+        }
+        return result;
+    }
+
+    // Замена сигнатуры фильма: он переносится только из тех корзин, хеш полосы которых изменился
+    private void publish(int filmId, int[] signature) {
+        versions.put(filmId, ++lastVersion);
+        int[] previous = signature != null ? signatures.put(filmId, signature) : signatures.remove(filmId);
+        for (int band = 0; band < BANDS; band++) {
+            Long oldKey = previous != null ? bucketKey(previous, band) : null;
+            Long newKey = signature != null ? bucketKey(signature, band) : null;
+            if (Objects.equals(oldKey, newKey)) {
+                continue;
+            }
+            if (oldKey != null) {
+                buckets.computeIfPresent(oldKey, (key, films) -> without(films, filmId));
+            }
+            if (newKey != null) {
+                buckets.merge(newKey, new int[]{filmId}, (films, added) -> with(films, filmId));
+            }
+        }
+    }
+
+    private static int[] emptySignature() {
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private static boolean addToSignature(int[] signature, int userId) {
+        boolean changed = false;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            int hash = hash(userId, i);
+            if (hash < signature[i]) {
+                signature[i] = hash;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Финализатор MurmurHash3 от ID с затравкой позиции; знаковый бит сброшен, MAX_VALUE означает «пусто»
+    private static int hash(int userId, int position) {
+        int h = userId ^ SEEDS[position];
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % Integer.MAX_VALUE;
+    }
+
+    private static long bucketKey(int[] signature, int band) {
+        int h = band;
+        for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+            h = 31 * h + signature[i];
+        }
+        return ((long) band << 32) | (h & 0xFFFFFFFFL);
+    }
+
+    private static int[] with(int[] films, int filmId) {
+        int position = Arrays.binarySearch(films, filmId);
+        if (position >= 0) {
+            return films;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[films.length + 1];
+        System.arraycopy(films, 0, updated, 0, insertAt);
+        updated[insertAt] = filmId;
+        System.arraycopy(films, insertAt, updated, insertAt + 1, films.length - insertAt);
+        return updated;
+    }
+
+    private static int[] without(int[] films, int filmId) {
+        int position = Arrays.binarySearch(films, filmId);
+        if (position < 0) {
+            return films;
+        }
+        if (films.length == 1) {
+            return null;
+        }
+        int[] updated = new int[films.length - 1];
+        System.arraycopy(films, 0, updated, 0, position);
+        System.arraycopy(films, position + 1, updated, position, films.length - position - 1);
+        return updated;
+    }
+}
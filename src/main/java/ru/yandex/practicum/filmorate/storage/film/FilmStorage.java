@@ -1,27 +1,56 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film getById(int id);
 
     Collection<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    List<Film> getByIds(List<Integer> ids);
+
+    void streamAll(Consumer<Film> consumer);
+
     void delete(int id);
 
     void addLike(int filmId, int userId);
 
     void removeLike(int filmId, int userId);
 
-    List<Film> getPopularFilms(int count);
+    void applyLikes(List<LikeEvent> events);
+
+    List<Film> getPopularFilms(int count, int offset, PopularityFilter filter);
+
+    default List<Film> getPopularFilms(int count, int offset) {
+        return getPopularFilms(count, offset, PopularityFilter.NONE);
+    }
+
+    default List<Film> getPopularFilms(int count) {
+        return getPopularFilms(count, 0);
+    }
 
     Set<Integer> getFilmLikes(int filmId);
+
+    int[] getLikedFilmIds(int userId);
+
+    OptionalInt getLikedPageLastId(int userId, int afterFilmId, int limit);
+
+    void streamLikedFilms(int userId, int afterFilmId, int upToFilmId, int limit, Consumer<Film> consumer);
+
+    List<RecentLikes> getRecentLikes(int[] userIds, int perUser);
 }
\ No newline at end of file
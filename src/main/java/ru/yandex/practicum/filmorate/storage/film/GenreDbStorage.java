@@ -5,7 +5,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.sql.ResultSet;
@@ -19,6 +21,7 @@ import java.util.stream.Collectors;
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    @Transactional(readOnly = true)
     public List<Genre> getFilmGenres(int filmId) {
         String sql = "SELECT g.id, g.name FROM film_genres fg " +
                 "JOIN genres g ON fg.genre_id = g.id " +
@@ -34,6 +37,18 @@ public class GenreDbStorage implements GenreStorage {
         jdbcTemplate.batchUpdate(sql, batchArgs);
     }
 
+    public void addFilmGenres(List<Film> films) {
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        List<Object[]> batchArgs = films.stream()
+                .filter(film -> film.getGenres() != null)
+                .flatMap(film -> film.getGenres().stream()
+                        .map(genre -> new Object[]{film.getId(), genre.getId()}))
+                .collect(Collectors.toList());
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batchArgs);
+        }
+    }
+
     private boolean genreExistsForFilm(int filmId, int genreId) {
         String sql = "SELECT COUNT(*) FROM film_genres WHERE film_id = ? AND genre_id = ?";
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, filmId, genreId);
@@ -45,11 +60,13 @@ public class GenreDbStorage implements GenreStorage {
         jdbcTemplate.update(sql, filmId);
     }
 
+    @Transactional(readOnly = true)
     public List<Genre> getAllGenres() {
         String sql = "SELECT * FROM genres ORDER BY id";
         return jdbcTemplate.query(sql, this::mapRowToGenre);
     }
 
+    @Transactional(readOnly = true)
     public Genre getGenreById(int id) {
         log.debug("Получение жанра по ID: {}", id);
 
@@ -67,6 +84,7 @@ public class GenreDbStorage implements GenreStorage {
         return new Genre(rs.getInt("id"), rs.getString("name"));
     }
 
+    @Transactional(readOnly = true)
     public List<Genre> getGenresByIds(Set<Integer> genreIds) {
         if (genreIds.isEmpty()) {
             return Collections.emptyList();
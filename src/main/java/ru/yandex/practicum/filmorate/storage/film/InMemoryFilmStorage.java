@@ -2,25 +2,39 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
     private final Map<Integer, Film> films = new HashMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
     private int idCounter = 1;
 
     @Override
     public Film create(Film film) {
         film.setId(idCounter++);
         films.put(film.getId(), film);
+        popularityIndex.put(film.getId(), film.getLikes().size(), FilmPopularityIndex.Partitions.of(film));
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::create);
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
-        films.put(film.getId(), film);
+        Film previous = films.put(film.getId(), film);
+        if (previous != null) {
+            film.setLikes(previous.getLikes());
+        }
+        popularityIndex.setPartitions(film.getId(), FilmPopularityIndex.Partitions.of(film));
         return film;
     }
 
@@ -34,33 +48,68 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.values();
     }
 
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return films.values().stream()
+                .filter(f -> f.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        films.values().stream()
+                .sorted(Comparator.comparingInt(Film::getId))
+                .forEach(consumer);
+    }
+
     @Override
     public void delete(int id) {
         films.remove(id);
+        popularityIndex.remove(id);
     }
 
     @Override
     public void addLike(int filmId, int userId) {
         Film film = films.get(filmId);
-        if (film != null) {
+        if (film != null && !film.getLikes().contains(userId)) {
             film.addLike(userId);
+            popularityIndex.adjust(filmId, 1);
         }
     }
 
     @Override
     public void removeLike(int filmId, int userId) {
         Film film = films.get(filmId);
-        if (film != null) {
+        if (film != null && film.getLikes().contains(userId)) {
             film.removeLike(userId);
+            popularityIndex.adjust(filmId, -1);
         }
     }
 
     @Override
-    public List<Film> getPopularFilms(int count) {
-        return films.values().stream()
-                .sorted(Comparator.comparingInt(f -> -f.getLikes().size()))
-                .limit(count)
-                .collect(Collectors.toList());
+    public void applyLikes(List<LikeEvent> events) {
+        for (LikeEvent event : events) {
+            if (event.liked()) {
+                addLike(event.filmId(), event.userId());
+            } else {
+                removeLike(event.filmId(), event.userId());
+            }
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, int offset, PopularityFilter filter) {
+        return getByIds(popularityIndex.top(offset, count, filter));
     }
 
     @Override
@@ -68,4 +117,47 @@ public class InMemoryFilmStorage implements FilmStorage {
         Film film = films.get(filmId);
         return film != null ? film.getLikes() : Collections.emptySet();
     }
-}
\ No newline at end of file
+
+    @Override
+    public int[] getLikedFilmIds(int userId) {
+        return films.values().stream()
+                .filter(film -> film.getLikes().contains(userId))
+                .mapToInt(Film::getId)
+                .sorted()
+                .toArray();
+    }
+
+    @Override
+    public OptionalInt getLikedPageLastId(int userId, int afterFilmId, int limit) {
+        return Arrays.stream(getLikedFilmIds(userId))
+                .filter(id -> id > afterFilmId)
+                .skip(limit - 1)
+                .findFirst();
+    }
+
+    @Override
+    public void streamLikedFilms(int userId, int afterFilmId, int upToFilmId, int limit, Consumer<Film> consumer) {
+        Arrays.stream(getLikedFilmIds(userId))
+                .filter(id -> id > afterFilmId && id <= upToFilmId)
+                .limit(limit)
+                .forEach(id -> consumer.accept(films.get(id)));
+    }
+
+    // Время лайков в памяти не хранится: лайки каждого пользователя возвращаются в порядке ID фильмов
+    @Override
+    public List<RecentLikes> getRecentLikes(int[] userIds, int perUser) {
+        List<RecentLikes> result = new ArrayList<>();
+        for (int userId : userIds) {
+            int[] filmIds = films.values().stream()
+                    .filter(film -> film.getLikes().contains(userId))
+                    .mapToInt(Film::getId)
+                    .sorted()
+                    .limit(perUser)
+                    .toArray();
+            if (filmIds.length > 0) {
+                result.add(new RecentLikes(userId, filmIds, new long[filmIds.length]));
+            }
+        }
+        return result;
+    }
+}
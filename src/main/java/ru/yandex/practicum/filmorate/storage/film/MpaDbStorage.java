@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
@@ -16,11 +17,13 @@ import java.util.List;
 public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    @Transactional(readOnly = true)
     public List<Mpa> getAllMpa() {
         String sql = "SELECT * FROM mpa ORDER BY id";
         return jdbcTemplate.query(sql, this::mapRowToMpa);
     }
 
+    @Transactional(readOnly = true)
     public Mpa getMpaById(int id) {
         try {
             String sql = "SELECT * FROM mpa WHERE id = ?";
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+/**
+ * Фильтр популярных фильмов по жанру, MPA рейтингу и году выхода; null — без ограничения.
+ */
+public record PopularityFilter(Integer genreId, Integer mpaId, Integer year) {
+    public static final PopularityFilter NONE = new PopularityFilter(null, null, null);
+
+    public boolean isEmpty() {
+        return genreId == null && mpaId == null && year == null;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+/**
+ * Последние лайки одного пользователя от новых к старым: ID фильмов и время лайка в миллисекундах.
+ */
+public record RecentLikes(int userId, int[] filmIds, long[] likedAt) {
+}
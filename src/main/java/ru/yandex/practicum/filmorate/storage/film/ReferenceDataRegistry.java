@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Справочники жанров и рейтингов MPA в памяти. Таблицы заполняются из data.sql и не меняются
+ * во время работы, поэтому загружаются один раз при старте; refresh() перечитывает их по запросу.
+ * Экземпляры Genre и Mpa общие для всех фильмов и не должны изменяться.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), List.of(), Map.of());
+
+    @PostConstruct
+    public void refresh() {
+        List<Genre> genres = List.copyOf(genreDbStorage.getAllGenres());
+        List<Mpa> mpa = List.copyOf(mpaDbStorage.getAllMpa());
+        snapshot = new Snapshot(
+                genres, genres.stream().collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity())),
+                mpa, mpa.stream().collect(Collectors.toUnmodifiableMap(Mpa::getId, Function.identity())));
+        log.info("Справочники загружены: жанров {}, рейтингов MPA {}", genres.size(), mpa.size());
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres();
+    }
+
+    public Genre getGenre(int id) {
+        Genre genre = snapshot.genresById().get(id);
+        if (genre == null) {
+            log.error("Жанр с ID {} не найден", id);
+            throw new NotFoundException("genre c id=" + id + " не найден.");
+        }
+        return genre;
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpa();
+    }
+
+    public Mpa getMpa(int id) {
+        Mpa mpa = snapshot.mpaById().get(id);
+        if (mpa == null) {
+            log.error("MPA с ID {} не найден", id);
+            throw new NotFoundException("MPA с id=" + id + " не найден");
+        }
+        return mpa;
+    }
+
+    public Set<Integer> findMissingGenreIds(Collection<Integer> genreIds) {
+        Map<Integer, Genre> genresById = snapshot.genresById();
+        return genreIds.stream()
+                .filter(id -> !genresById.containsKey(id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private record Snapshot(List<Genre> genres, Map<Integer, Genre> genresById,
+                            List<Mpa> mpa, Map<Integer, Mpa> mpaById) {
+    }
+}
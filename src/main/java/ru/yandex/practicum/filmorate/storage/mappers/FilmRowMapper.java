@@ -4,33 +4,56 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FilmRowMapper implements RowMapper<Film> {
+    private final ReferenceDataRegistry referenceData;
 
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
         log.debug("Маппинг строки ResultSet в объект Film");
 
+        int mpaId = rs.getInt("mpa_id");
+        Mpa mpa = rs.wasNull() ? null : referenceData.getMpa(mpaId);
+
         return Film.builder()
                 .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date").toLocalDate())
                 .duration(rs.getInt("duration"))
-                .mpa(new Mpa(
-                        rs.getInt("mpa_id"),
-                        rs.getString("mpa_name"),
-                        rs.getString("mpa_description")))
+                .mpa(mpa)
+                .likesCount(rs.getInt("likes_count"))
+                .genres(mapGenres(rs.getArray("genre_ids")))
                 .build();
 
 
     }
+
+    private Set<Genre> mapGenres(Array genreIds) throws SQLException {
+        Set<Genre> genres = new LinkedHashSet<>();
+        if (genreIds == null) {
+            return genres;
+        }
+        try {
+            for (Object genreId : (Object[]) genreIds.getArray()) {
+                genres.add(referenceData.getGenre(((Number) genreId).intValue()));
+            }
+        } finally {
+            genreIds.free();
+        }
+        return genres;
+    }
 }
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.util.SortedIntArrays;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы в памяти процесса. Для каждого пользователя хранится отсортированный массив ID друзей
+ * (исходящие заявки) и отсортированный массив ID тех, кто добавил его в друзья (входящие).
+ * Массивы не изменяются после публикации: при изменении подменяются копией, поэтому читатели
+ * работают без блокировок, а возвращаемые массивы нельзя модифицировать.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> followers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        // Каждая строка пары даёт одно или два направленных ребра
+        EdgeList edges = new EdgeList();
+        jdbcTemplate.query("SELECT user_low, user_high, state FROM friendship_pairs", rs -> {
+            int low = rs.getInt("user_low");
+            int high = rs.getInt("user_high");
+            int state = rs.getInt("state");
+            if ((state & 1) != 0) {
+                edges.add(low, high);
+            }
+            if ((state & 2) != 0) {
+                edges.add(high, low);
+            }
+        });
+        // После сортировки по (from, to) списки друзей получаются уже отсортированными,
+        // а списки входящих заполняются по возрастанию from и тоже не требуют сортировки
+        edges.sort();
+
+        Map<Integer, Integer> inDegree = new HashMap<>();
+        for (int i = 0; i < edges.size; i++) {
+            inDegree.merge(edges.to(i), 1, Integer::sum);
+        }
+        Map<Integer, int[]> loadedFollowers = new HashMap<>();
+        Map<Integer, Integer> filled = new HashMap<>();
+        inDegree.forEach((userId, degree) -> loadedFollowers.put(userId, new int[degree]));
+
+        Map<Integer, int[]> loadedFriends = new HashMap<>();
+        int start = 0;
+        for (int i = 0; i < edges.size; i++) {
+            int from = edges.from(i);
+            int to = edges.to(i);
+            loadedFollowers.get(to)[filled.merge(to, 1, Integer::sum) - 1] = from;
+            if (i + 1 == edges.size || edges.from(i + 1) != from) {
+                int[] list = new int[i + 1 - start];
+                for (int k = start; k <= i; k++) {
+                    list[k - start] = edges.to(k);
+                }
+                loadedFriends.put(from, list);
+                start = i + 1;
+            }
+        }
+
+        friends.clear();
+        followers.clear();
+        friends.putAll(loadedFriends);
+        followers.putAll(loadedFollowers);
+        log.info("Граф дружбы построен: {} пользователей, {} связей", friends.size(), edges.size);
+    }
+
+    public int[] getFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] getFollowers(int userId) {
+        return followers.getOrDefault(userId, EMPTY);
+    }
+
+    // Изменения применяются сразу и откатываются вместе с транзакцией
+    public void addFriend(int userId, int friendId) {
+        if (insert(friends, userId, friendId)) {
+            insert(followers, friendId, userId);
+            TransactionHooks.onRollback(() -> unlink(userId, friendId));
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        if (unlink(userId, friendId)) {
+            TransactionHooks.onRollback(() -> addFriend(userId, friendId));
+        }
+    }
+
+    // Связи удалённого пользователя удаляются каскадно в базе, здесь — по обоим спискам
+    public void removeUser(int userId) {
+        for (int friendId : getFriends(userId)) {
+            removeFriend(userId, friendId);
+        }
+        for (int followerId : getFollowers(userId)) {
+            removeFriend(followerId, userId);
+        }
+    }
+
+    /**
+     * Общие друзья — пересечение двух отсортированных массивов слиянием за O(n + m).
+     */
+    public int[] getCommonFriends(int userId, int otherId) {
+        return SortedIntArrays.intersect(getFriends(userId), getFriends(otherId));
+    }
+
+    private boolean unlink(int userId, int friendId) {
+        if (delete(friends, userId, friendId)) {
+            delete(followers, friendId, userId);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean insert(Map<Integer, int[]> adjacency, int key, int value) {
+        boolean[] changed = {false};
+        adjacency.compute(key, (k, current) -> {
+            if (current == null) {
+                changed[0] = true;
+                return new int[]{value};
+            }
+            int position = Arrays.binarySearch(current, value);
+            if (position >= 0) {
+                return current;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = value;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            changed[0] = true;
+            return updated;
+        });
+        return changed[0];
+    }
+
+    private static boolean delete(Map<Integer, int[]> adjacency, int key, int value) {
+        boolean[] changed = {false};
+        adjacency.computeIfPresent(key, (k, current) -> {
+            int position = Arrays.binarySearch(current, value);
+            if (position < 0) {
+                return current;
+            }
+            changed[0] = true;
+            if (current.length == 1) {
+                return null;
+            }
+            int[] updated = new int[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+            return updated;
+        });
+        return changed[0];
+    }
+
+    // Рёбра упакованы в long (from в старших битах), поэтому сортируются как пары (from, to)
+    private static final class EdgeList {
+        private long[] edges = new long[1024];
+        private int size;
+
+        private void add(int from, int to) {
+            if (size == edges.length) {
+                edges = Arrays.copyOf(edges, size * 2);
+            }
+            edges[size++] = ((long) from << 32) | to;
+        }
+
+        private void sort() {
+            Arrays.sort(edges, 0, size);
+        }
+
+        private int from(int index) {
+            return (int) (edges[index] >>> 32);
+        }
+
+        private int to(int index) {
+            return (int) edges[index];
+        }
+    }
+}
@@ -1,59 +1,119 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.MissingReferences;
 
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Дружба хранится одной строкой на пару (user_low, user_high) с битовой маской направлений:
+ * бит 1 — user_low добавил user_high, бит 2 — user_high добавил user_low.
+ */
 @Repository
 @RequiredArgsConstructor
 public class FriendshipDbStorage implements FriendshipStorage {
+    // Параметры: user_low, user_high, бит направления
+    static final String ADD_DIRECTION_SQL = """
+            MERGE INTO friendship_pairs p
+            USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TINYINT))) v (low, high, bit)
+            ON p.user_low = v.low AND p.user_high = v.high
+            WHEN MATCHED THEN UPDATE SET state = BITOR(p.state, v.bit)
+            WHEN NOT MATCHED THEN INSERT (user_low, user_high, state) VALUES (v.low, v.high, v.bit)
+            """;
+
+    // Снимает бит направления; строка без направлений удаляется
+    static final String REMOVE_DIRECTION_SQL = """
+            MERGE INTO friendship_pairs p
+            USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TINYINT))) v (low, high, bit)
+            ON p.user_low = v.low AND p.user_high = v.high AND BITAND(p.state, v.bit) <> 0
+            WHEN MATCHED AND p.state = v.bit THEN DELETE
+            WHEN MATCHED THEN UPDATE SET state = p.state - v.bit
+            """;
+
+    private static final int CONFIRMED = 3;
+
     private final JdbcTemplate jdbcTemplate;
     private final UserDbStorage userDbStorage;
-    private final UserRowMapper userRowMapper;
+    private final FriendGraph friendGraph;
 
+    // Пара в каноническом порядке и бит направления userId -> friendId
+    static Object[] directionArgs(int userId, int friendId) {
+        return userId < friendId
+                ? new Object[]{userId, friendId, 1}
+                : new Object[]{friendId, userId, 2};
+    }
+
+    // Одна идемпотентная операция: повторный запрос не меняет запись,
+    // отсутствующий пользователь определяется по внешнему ключу
     @Override
     public void addFriendship(int userId, int friendId) {
-        if (userDbStorage.getById(userId) == null || userDbStorage.getById(friendId) == null) {
-            throw new NotFoundException("Пользователь не найден");
+        try {
+            jdbcTemplate.update(ADD_DIRECTION_SQL, directionArgs(userId, friendId));
+            friendGraph.addFriend(userId, friendId);
+        } catch (DataIntegrityViolationException e) {
+            throw MissingReferences.translate(e, "Пользователь не найден");
+        }
+    }
+
+    // Существование пользователей проверяется, только если удалять было нечего
+    @Override
+    public void removeFriendship(int userId, int friendId) {
+        if (jdbcTemplate.update(REMOVE_DIRECTION_SQL, directionArgs(userId, friendId)) > 0) {
+            friendGraph.removeFriend(userId, friendId);
+        } else {
+            Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id IN (?, ?)",
+                    Integer.class, userId, friendId);
+            if (found == null || found < (userId == friendId ? 1 : 2)) {
+                throw new NotFoundException("Пользователь не найден");
+            }
         }
+    }
 
-        if (!friendshipExists(userId, friendId)) {
-            String sql = "INSERT INTO friendship (user_id, friend_id, status) VALUES (?, ?, false)";
-            jdbcTemplate.update(sql, userId, friendId);
+    // Принятие заявки: пара становится взаимной в той же строке
+    @Override
+    public void acceptFriendship(int userId, int requesterId) {
+        Object[] request = directionArgs(requesterId, userId);
+        String sql = "UPDATE friendship_pairs SET state = ? "
+                + "WHERE user_low = ? AND user_high = ? AND BITAND(state, CAST(? AS TINYINT)) <> 0";
+        if (jdbcTemplate.update(sql, CONFIRMED, request[0], request[1], request[2]) == 0) {
+            throw new NotFoundException("Заявка в друзья не найдена");
         }
+        friendGraph.addFriend(userId, requesterId);
     }
 
+    // Отклонить можно только заявку без ответа; строка удаляется
     @Override
-    public void removeFriendship(int userId, int friendId) {
-        String sql = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
-        int rows = jdbcTemplate.update(sql, userId, friendId);
+    public void declineFriendship(int userId, int requesterId) {
+        Object[] request = directionArgs(requesterId, userId);
+        String sql = "DELETE FROM friendship_pairs WHERE user_low = ? AND user_high = ? AND state = ?";
+        if (jdbcTemplate.update(sql, request) == 0) {
+            throw new NotFoundException("Заявка в друзья не найдена");
+        }
+        friendGraph.removeFriend(requesterId, userId);
     }
 
     @Override
     public boolean friendshipExists(int userId, int friendId) {
-        String sql = "SELECT COUNT(*) FROM friendship WHERE user_id = ? AND friend_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId, friendId);
-        return count != null && count > 0;
+        return Arrays.binarySearch(friendGraph.getFriends(userId), friendId) >= 0;
     }
 
+    // Списки друзей берутся из графа в памяти, пользователи загружаются одним запросом
     @Override
+    @Transactional(readOnly = true)
     public List<User> getFriends(int userId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendship f ON u.id = f.friend_id " +
-                "WHERE f.user_id = ?";
-        return jdbcTemplate.query(sql, userRowMapper, userId);
+        return userDbStorage.getByIds(friendGraph.getFriends(userId));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(int userId1, int userId2) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendship f1 ON u.id = f1.friend_id AND f1.user_id = ? " +
-                "JOIN friendship f2 ON u.id = f2.friend_id AND f2.user_id = ?";
-        return jdbcTemplate.query(sql, userRowMapper, userId1, userId2);
+        return userDbStorage.getByIds(friendGraph.getCommonFriends(userId1, userId2));
     }
-}
\ No newline at end of file
+}
@@ -9,6 +9,10 @@ public interface FriendshipStorage {
 
     void removeFriendship(int userId, int friendId);
 
+    void acceptFriendship(int userId, int requesterId);
+
+    void declineFriendship(int userId, int requesterId);
+
     boolean friendshipExists(int userId, int friendId);
 
     List<User> getFriends(int userId);
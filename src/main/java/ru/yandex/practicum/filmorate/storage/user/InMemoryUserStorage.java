@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
@@ -32,11 +33,44 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
+    @Override
+    public User getByLogin(String login) {
+        return users.values().stream()
+                .filter(u -> u.getLogin().equals(login))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("user c login=" + login + " не найден."));
+    }
+
+    @Override
+    public User getByEmail(String email) {
+        return users.values().stream()
+                .filter(u -> u.getEmail().equals(email))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("user c email=" + email + " не найден."));
+    }
+
     @Override
     public Collection<User> getAll() {
         return users.values();
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return users.values().stream()
+                .filter(u -> u.getId() > afterId)
+                .sorted(Comparator.comparingInt(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getByIds(int[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void delete(int id) {
         users.remove(id);
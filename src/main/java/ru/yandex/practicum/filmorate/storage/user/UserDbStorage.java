@@ -2,16 +2,20 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 @Primary
@@ -19,33 +23,85 @@ import java.util.*;
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final FriendGraph friendGraph;
+    private final Optional<UserLookupIndex> lookupIndex;
 
     @Override
     public User create(User user) {
+        checkKeysAvailable(user, 0);
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("users")
                 .usingGeneratedKeyColumns("id");
 
-        int userId = simpleJdbcInsert.executeAndReturnKey(user.toMap()).intValue();
+        int userId;
+        try {
+            userId = simpleJdbcInsert.executeAndReturnKey(user.toMap()).intValue();
+        } catch (DuplicateKeyException e) {
+            throw translateDuplicate(e, user);
+        }
         user.setId(userId);
 
-        return getById(userId);
+        User created = getById(userId);
+        lookupIndex.ifPresent(index -> index.put(created));
+        return created;
     }
 
     @Override
     public User update(User user) {
+        checkKeysAvailable(user, user.getId());
         String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
-        jdbcTemplate.update(sql,
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                user.getBirthday(),
-                user.getId());
-
-        return getById(user.getId());
+        try {
+            jdbcTemplate.update(sql,
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getName(),
+                    user.getBirthday(),
+                    user.getId());
+        } catch (DuplicateKeyException e) {
+            throw translateDuplicate(e, user);
+        }
+
+        User updated = getById(user.getId());
+        lookupIndex.ifPresent(index -> index.put(updated));
+        return updated;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User getByLogin(String login) {
+        if (lookupIndex.isPresent()) {
+            Integer id = lookupIndex.get().findByLogin(login);
+            if (id == null) {
+                throw new NotFoundException("user c login=" + login + " не найден.");
+            }
+            return getById(id);
+        }
+        try {
+            return jdbcTemplate.queryForObject("SELECT * FROM users WHERE login = ?", userRowMapper, login);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NotFoundException("user c login=" + login + " не найден.");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User getByEmail(String email) {
+        if (lookupIndex.isPresent()) {
+            Integer id = lookupIndex.get().findByEmail(email);
+            if (id == null) {
+                throw new NotFoundException("user c email=" + email + " не найден.");
+            }
+            return getById(id);
+        }
+        try {
+            return jdbcTemplate.queryForObject("SELECT * FROM users WHERE email = ?", userRowMapper, email);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NotFoundException("user c email=" + email + " не найден.");
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User getById(int id) {
         String sql = "SELECT * FROM users WHERE id = ?";
         try {
@@ -56,42 +112,101 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<User> getAll() {
         String sql = "SELECT * FROM users";
         return jdbcTemplate.query(sql, userRowMapper);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, userRowMapper, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+
+        String sql = "SELECT * FROM users WHERE id IN (%s)".formatted(Arrays.stream(ids)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(",")));
+
+        Map<Integer, User> usersById = new HashMap<>();
+        jdbcTemplate.query(sql, userRowMapper).forEach(u -> usersById.put(u.getId(), u));
+
+        // Восстанавливаем порядок запроса; отсутствующих пользователей пропускаем
+        List<User> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     @Override
     public void delete(int id) {
         String sql = "DELETE FROM users WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        friendGraph.removeUser(id);
+        lookupIndex.ifPresent(index -> index.remove(id));
     }
 
     @Override
     public void addFriend(int userId, int friendId) {
-        String sql = "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, userId, friendId);
+        jdbcTemplate.update(FriendshipDbStorage.ADD_DIRECTION_SQL, FriendshipDbStorage.directionArgs(userId, friendId));
+        friendGraph.addFriend(userId, friendId);
     }
 
     @Override
     public void removeFriend(int userId, int friendId) {
-        String sql = "DELETE FROM friendship WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        jdbcTemplate.update(FriendshipDbStorage.REMOVE_DIRECTION_SQL,
+                FriendshipDbStorage.directionArgs(userId, friendId));
+        friendGraph.removeFriend(userId, friendId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getFriends(int userId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendship f ON u.id = f.friend_id " +
-                "WHERE f.user_id = ?";
-        return jdbcTemplate.query(sql, userRowMapper, userId);
+        return getByIds(friendGraph.getFriends(userId));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(int userId, int otherId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendship f1 ON u.id = f1.friend_id AND f1.user_id = ? " +
-                "JOIN friendship f2 ON u.id = f2.friend_id AND f2.user_id = ?";
-        return jdbcTemplate.query(sql, userRowMapper, userId, otherId);
+        return getByIds(friendGraph.getCommonFriends(userId, otherId));
+    }
+
+    // Быстрый отказ по индексу в памяти; без индекса занятость проверяет сама запись
+    private void checkKeysAvailable(User user, int ownId) {
+        if (lookupIndex.isEmpty()) {
+            return;
+        }
+        Integer loginOwner = lookupIndex.get().findByLogin(user.getLogin());
+        if (loginOwner != null && loginOwner != ownId) {
+            throw new ConflictException("Логин " + user.getLogin() + " уже занят");
+        }
+        Integer emailOwner = lookupIndex.get().findByEmail(user.getEmail());
+        if (emailOwner != null && emailOwner != ownId) {
+            throw new ConflictException("Email " + user.getEmail() + " уже занят");
+        }
+    }
+
+    // Имя нарушенного уникального индекса показывает, какое поле занято
+    private static RuntimeException translateDuplicate(DuplicateKeyException e, User user) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+        if (message.contains("USERS_LOGIN_UQ")) {
+            return new ConflictException("Логин " + user.getLogin() + " уже занят");
+        }
+        if (message.contains("USERS_EMAIL_UQ")) {
+            return new ConflictException("Email " + user.getEmail() + " уже занят");
+        }
+        return e;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.util.*;
+
+/**
+ * Запись пользователей и связей дружбы большими JDBC-пакетами для массового импорта.
+ * Граф дружбы и индекс логинов в памяти при этом не обновляются — после импорта
+ * их нужно перестроить через reloadIndexes().
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserImportStorage {
+    // Строка вставляется, только если ID, логин и email свободны: существующие пользователи не перезаписываются
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users (id, email, login, name, birthday)
+            SELECT ?, ?, ?, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM users WHERE id = ?)
+              AND NOT EXISTS (SELECT 1 FROM users WHERE login = ?)
+              AND NOT EXISTS (SELECT 1 FROM users WHERE email = ?)
+            """;
+    private static final int ID_LOOKUP_SLICE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final Optional<UserLookupIndex> lookupIndex;
+
+    // Ключ пары для накопления направлений: (user_low, user_high) в одном long
+    public static long pairKey(int userId, int friendId) {
+        return ((long) Math.min(userId, friendId) << 32) | Math.max(userId, friendId);
+    }
+
+    public static int directionBit(int userId, int friendId) {
+        return userId < friendId ? 1 : 2;
+    }
+
+    /**
+     * Итог вставки части: ID вставленных пользователей и число пропущенных строк по причинам.
+     */
+    public record InsertResult(int[] insertedIds, int duplicateIds, int duplicateLoginsOrEmails) {
+    }
+
+    // Пользователи вставляются с ID из файла; строка с занятым ID, логином или email пропускается,
+    // поэтому повторный импорт того же файла ничего не меняет
+    public InsertResult insertUsers(List<User> users, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_USER_SQL, users, batchSize, (ps, user) -> {
+            ps.setInt(1, user.getId());
+            ps.setString(2, user.getEmail());
+            ps.setString(3, user.getLogin());
+            ps.setString(4, user.getName());
+            ps.setDate(5, user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null);
+            ps.setInt(6, user.getId());
+            ps.setString(7, user.getLogin());
+            ps.setString(8, user.getEmail());
+        });
+
+        int[] inserted = new int[users.size()];
+        int n = 0;
+        List<Integer> skippedIds = new ArrayList<>();
+        int row = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                int userId = users.get(row++).getId();
+                if (count > 0) {
+                    inserted[n++] = userId;
+                } else {
+                    skippedIds.add(userId);
+                }
+            }
+        }
+        // Строка с существующим ID конфликтует по ID, остальные пропущенные — по логину или email
+        int duplicateIds = countExisting(skippedIds);
+        return new InsertResult(Arrays.copyOf(inserted, n), duplicateIds, skippedIds.size() - duplicateIds);
+    }
+
+    private int countExisting(List<Integer> userIds) {
+        int existing = 0;
+        for (int from = 0; from < userIds.size(); from += ID_LOOKUP_SLICE) {
+            List<Integer> slice = userIds.subList(from, Math.min(from + ID_LOOKUP_SLICE, userIds.size()));
+            String placeholders = String.join(",", Collections.nCopies(slice.size(), "?"));
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM users WHERE id IN (" + placeholders + ")", Integer.class, slice.toArray());
+            existing += count != null ? count : 0;
+        }
+        return existing;
+    }
+
+    // Пары идут по возрастанию ключа, поэтому параллельные порции блокируют строки в одном порядке
+    public void mergeFriendPairs(NavigableMap<Long, Integer> stateByPair, int batchSize) {
+        jdbcTemplate.batchUpdate(FriendshipDbStorage.ADD_DIRECTION_SQL, stateByPair.entrySet(), batchSize,
+                (ps, pair) -> {
+                    ps.setInt(1, (int) (pair.getKey() >>> 32));
+                    ps.setInt(2, (int) (long) pair.getKey());
+                    ps.setInt(3, pair.getValue());
+                });
+    }
+
+    // После вставки с явными ID генератор продолжает нумерацию за максимальным ID
+    public void restartUserIds() {
+        Integer next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM users", Integer.class);
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + next);
+    }
+
+    public void reloadIndexes() {
+        friendGraph.load();
+        lookupIndex.ifPresent(UserLookupIndex::load);
+    }
+}
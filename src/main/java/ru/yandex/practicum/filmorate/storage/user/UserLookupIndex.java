@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хеш-индекс пользователей по логину и email в памяти процесса.
+ * Поиск и проверка занятости выполняются без обращения к базе; источником истины
+ * остаются уникальные индексы users, индекс лишь повторяет их содержимое.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.users.lookup-index.enabled", havingValue = "true", matchIfMissing = true)
+public class UserLookupIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> byLogin = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byEmail = new ConcurrentHashMap<>();
+    private final Map<Integer, Keys> keysById = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        byLogin.clear();
+        byEmail.clear();
+        keysById.clear();
+        jdbcTemplate.query("SELECT id, login, email FROM users",
+                rs -> {
+                    put(rs.getInt("id"), new Keys(rs.getString("login"), rs.getString("email")));
+                });
+        log.info("Индекс пользователей по логину и email построен: {} пользователей", keysById.size());
+    }
+
+    public Integer findByLogin(String login) {
+        return byLogin.get(login);
+    }
+
+    public Integer findByEmail(String email) {
+        return byEmail.get(email);
+    }
+
+    // Вызывается после успешной записи в базу, чтобы в индекс не попадали отклонённые значения
+    public void put(User user) {
+        Keys previous = put(user.getId(), new Keys(user.getLogin(), user.getEmail()));
+        TransactionHooks.onRollback(() -> {
+            removeKeys(user.getId());
+            if (previous != null) {
+                put(user.getId(), previous);
+            }
+        });
+    }
+
+    public void remove(int userId) {
+        Keys previous = removeKeys(userId);
+        if (previous != null) {
+            TransactionHooks.onRollback(() -> put(userId, previous));
+        }
+    }
+
+    private Keys put(int userId, Keys keys) {
+        Keys previous = keysById.put(userId, keys);
+        if (previous != null) {
+            byLogin.remove(previous.login(), userId);
+            byEmail.remove(previous.email(), userId);
+        }
+        byLogin.put(keys.login(), userId);
+        byEmail.put(keys.email(), userId);
+        return previous;
+    }
+
+    private Keys removeKeys(int userId) {
+        Keys previous = keysById.remove(userId);
+        if (previous != null) {
+            byLogin.remove(previous.login(), userId);
+            byEmail.remove(previous.email(), userId);
+        }
+        return previous;
+    }
+
+    private record Keys(String login, String email) {
+    }
+}
@@ -11,8 +11,16 @@ public interface UserStorage {
 
     User getById(int id);
 
+    User getByLogin(String login);
+
+    User getByEmail(String email);
+
     Collection<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
+    List<User> getByIds(int[] ids);
+
     void delete(int id);
 
     void addFriend(int userId, int friendId);
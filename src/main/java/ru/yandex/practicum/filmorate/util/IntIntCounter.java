@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Счётчик по int-ключам на открытой адресации с линейным пробированием, без упаковки в Integer.
+ * Ключ 0 зарезервирован под пустую ячейку, поэтому ключи должны быть ненулевыми (ID из базы).
+ */
+public class IntIntCounter {
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+    private int resizeThreshold;
+
+    public IntIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        resizeThreshold = capacity / 2;
+    }
+
+    public void add(int key, int delta) {
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size > resizeThreshold) {
+                counts[slot] = delta;
+                grow();
+                return;
+            }
+        }
+        counts[slot] += delta;
+    }
+
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    public int get(int key) {
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public void addAll(IntIntCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ключи с наибольшими значениями: по убыванию значения, при равенстве — по возрастанию ключа.
+     * Пара упаковывается в long, чтобы отсортировать её без создания объектов.
+     */
+    public int[] topKeys(int limit) {
+        long[] packed = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                packed[n++] = ((long) counts[i] << 32) | (Integer.MAX_VALUE - keys[i]);
+            }
+        }
+        Arrays.sort(packed);
+        int[] result = new int[Math.min(limit, n)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Integer.MAX_VALUE - (int) packed[n - 1 - i];
+        }
+        return result;
+    }
+
+    private static int findSlot(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        resizeThreshold = keys.length / 2;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
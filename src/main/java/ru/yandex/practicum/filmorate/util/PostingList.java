@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый сжатый список вхождений терма: пары (ID документа, частота) по возрастанию ID.
+ * Пары хранятся блоками до MAX_BLOCK_SIZE; внутри блока ID записаны разностями, числа — в varint.
+ * Последние ID блоков служат указателями пропуска: курсор перескакивает блоки, не распаковывая их.
+ * Добавление и удаление документа перекодируют только один блок.
+ */
+public final class PostingList {
+    public static final PostingList EMPTY = new PostingList(new int[0], new byte[0][], new int[0], 0);
+
+    private static final int BLOCK_SIZE = 128;
+    private static final int MAX_BLOCK_SIZE = BLOCK_SIZE * 2;
+
+    private final int[] lastDocs;
+    private final byte[][] blocks;
+    private final int[] blockSizes;
+    private final int size;
+
+    private PostingList(int[] lastDocs, byte[][] blocks, int[] blockSizes, int size) {
+        this.lastDocs = lastDocs;
+        this.blocks = blocks;
+        this.blockSizes = blockSizes;
+        this.size = size;
+    }
+
+    /**
+     * Список из первых count пар; ID должны идти по возрастанию без повторов.
+     */
+    public static PostingList of(int[] docs, int[] freqs, int count) {
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] lastDocs = new int[blockCount];
+        byte[][] blocks = new byte[blockCount][];
+        int[] blockSizes = new int[blockCount];
+        for (int b = 0; b < blockCount; b++) {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(count, from + BLOCK_SIZE);
+            blocks[b] = encode(docs, freqs, from, to);
+            lastDocs[b] = docs[to - 1];
+            blockSizes[b] = to - from;
+        }
+        return new PostingList(lastDocs, blocks, blockSizes, count);
+    }
+
+    // Число документов с термом
+    public int size() {
+        return size;
+    }
+
+    public PostingList with(int doc, int freq) {
+        if (size == 0) {
+            return of(new int[]{doc}, new int[]{freq}, 1);
+        }
+        int b = Math.min(findBlock(doc, 0), blocks.length - 1);
+        int n = blockSizes[b];
+        int[] docs = new int[n + 1];
+        int[] freqs = new int[n + 1];
+        decode(blocks[b], n, docs, freqs);
+
+        int position = Arrays.binarySearch(docs, 0, n, doc);
+        int sizeDelta = 0;
+        if (position >= 0) {
+            freqs[position] = freq;
+        } else {
+            int insertAt = -position - 1;
+            System.arraycopy(docs, insertAt, docs, insertAt + 1, n - insertAt);
+            System.arraycopy(freqs, insertAt, freqs, insertAt + 1, n - insertAt);
+            docs[insertAt] = doc;
+            freqs[insertAt] = freq;
+            n++;
+            sizeDelta = 1;
+        }
+        // Переполненный блок делится пополам, остальные блоки переиспользуются как есть
+        if (n > MAX_BLOCK_SIZE) {
+            int half = n / 2;
+            return replace(b, size + sizeDelta,
+                    new Block(encode(docs, freqs, 0, half), docs[half - 1], half),
+                    new Block(encode(docs, freqs, half, n), docs[n - 1], n - half));
+        }
+        return replace(b, size + sizeDelta, new Block(encode(docs, freqs, 0, n), docs[n - 1], n));
+    }
+
+    public PostingList without(int doc) {
+        int b = findBlock(doc, 0);
+        if (b == blocks.length) {
+            return this;
+        }
+        int n = blockSizes[b];
+        int[] docs = new int[n];
+        int[] freqs = new int[n];
+        decode(blocks[b], n, docs, freqs);
+        int position = Arrays.binarySearch(docs, 0, n, doc);
+        if (position < 0) {
+            return this;
+        }
+        if (n == 1) {
+            return size == 1 ? EMPTY : replace(b, size - 1);
+        }
+        System.arraycopy(docs, position + 1, docs, position, n - position - 1);
+        System.arraycopy(freqs, position + 1, freqs, position, n - position - 1);
+        n--;
+        return replace(b, size - 1, new Block(encode(docs, freqs, 0, n), docs[n - 1], n));
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Курсор по списку. До первого вызова next() или advance() позиция не определена;
+     * после конца списка doc() возвращает NO_MORE_DOCS.
+     */
+    public final class Cursor {
+        public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+        private final int[] docs = new int[MAX_BLOCK_SIZE];
+        private final int[] freqs = new int[MAX_BLOCK_SIZE];
+        private int block = -1;
+        private int position = -1;
+        private int doc = -1;
+
+        public int doc() {
+            return doc;
+        }
+
+        public int freq() {
+            return freqs[position];
+        }
+
+        public boolean next() {
+            if (doc == NO_MORE_DOCS) {
+                return false;
+            }
+            if (block < 0 || ++position == blockSizes[block]) {
+                return load(block + 1);
+            }
+            doc = docs[position];
+            return true;
+        }
+
+        // Переход к первому документу с ID не меньше target; целые блоки пропускаются по их последнему ID
+        public boolean advance(int target) {
+            if (doc >= target) {
+                return doc != NO_MORE_DOCS;
+            }
+            if (block < 0 || lastDocs[block] < target) {
+                if (!load(findBlock(target, Math.max(block, 0)))) {
+                    return false;
+                }
+            }
+            while (docs[position] < target) {
+                position++;
+            }
+            doc = docs[position];
+            return true;
+        }
+
+        private boolean load(int nextBlock) {
+            if (nextBlock >= blocks.length) {
+                block = blocks.length;
+                doc = NO_MORE_DOCS;
+                return false;
+            }
+            block = nextBlock;
+            decode(blocks[block], blockSizes[block], docs, freqs);
+            position = 0;
+            doc = docs[0];
+            return true;
+        }
+    }
+
+    private record Block(byte[] data, int lastDoc, int size) {
+    }
+
+    // Первый блок начиная с from, последний ID которого не меньше doc; blocks.length, если такого нет
+    private int findBlock(int doc, int from) {
+        int position = Arrays.binarySearch(lastDocs, from, lastDocs.length, doc);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private PostingList replace(int index, int newSize, Block... replacement) {
+        int count = blocks.length - 1 + replacement.length;
+        int[] newLastDocs = new int[count];
+        byte[][] newBlocks = new byte[count][];
+        int[] newBlockSizes = new int[count];
+        System.arraycopy(lastDocs, 0, newLastDocs, 0, index);
+        System.arraycopy(blocks, 0, newBlocks, 0, index);
+        System.arraycopy(blockSizes, 0, newBlockSizes, 0, index);
+        for (int i = 0; i < replacement.length; i++) {
+            newLastDocs[index + i] = replacement[i].lastDoc();
+            newBlocks[index + i] = replacement[i].data();
+            newBlockSizes[index + i] = replacement[i].size();
+        }
+        int tail = blocks.length - index - 1;
+        System.arraycopy(lastDocs, index + 1, newLastDocs, index + replacement.length, tail);
+        System.arraycopy(blocks, index + 1, newBlocks, index + replacement.length, tail);
+        System.arraycopy(blockSizes, index + 1, newBlockSizes, index + replacement.length, tail);
+        return new PostingList(newLastDocs, newBlocks, newBlockSizes, newSize);
+    }
+
+    private static byte[] encode(int[] docs, int[] freqs, int from, int to) {
+        byte[] buffer = new byte[(to - from) * 10];
+        int length = 0;
+        int previous = 0;
+        for (int i = from; i < to; i++) {
+            length = writeVarInt(buffer, length, docs[i] - previous);
+            length = writeVarInt(buffer, length, freqs[i]);
+            previous = docs[i];
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static void decode(byte[] data, int count, int[] docs, int[] freqs) {
+        int offset = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += value;
+            docs[i] = previous;
+
+            value = 0;
+            shift = 0;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            freqs[i] = value;
+        }
+    }
+
+    private static int writeVarInt(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+}
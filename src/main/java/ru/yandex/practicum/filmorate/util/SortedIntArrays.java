@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами int без повторов.
+ */
+public final class SortedIntArrays {
+
+    private SortedIntArrays() {
+    }
+
+    /**
+     * Пересечение слиянием за O(n + m); результат тоже отсортирован.
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+}
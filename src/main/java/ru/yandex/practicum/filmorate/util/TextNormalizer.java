@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Нормализация текста для поиска: нижний регистр, «ё» приравнивается к «е», любые символы,
+ * кроме букв и цифр (в том числе кириллических), считаются разделителями.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Слова текста, разделённые одним пробелом, без пробелов по краям.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder result = new StringBuilder(lower.length());
+        boolean separator = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && !result.isEmpty()) {
+                    result.append(' ');
+                }
+                result.append(c == 'ё' ? 'е' : c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return result.toString();
+    }
+
+    public static List<String> tokenize(String text) {
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = normalized.indexOf(' ', start);
+            if (end < 0) {
+                end = normalized.length();
+            }
+            tokens.add(normalized.substring(start, end));
+            start = end + 1;
+        }
+        return tokens;
+    }
+}
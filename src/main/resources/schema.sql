@@ -1,3 +1,10 @@
+-- Журнал разовых миграций данных: скрипт выполняется при каждом запуске, а перенос и пересчёт
+-- данных должны выполниться один раз. Запись добавляется после успешного шага миграции
+CREATE TABLE IF NOT EXISTS schema_migrations (
+    name VARCHAR(100) PRIMARY KEY,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+    );
+
 -- Таблица MPA рейтингов
 CREATE TABLE IF NOT EXISTS mpa (
                                    id INTEGER PRIMARY KEY,
@@ -18,7 +25,8 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(200),
     release_date DATE,
     duration INTEGER,
-    mpa_id INTEGER REFERENCES mpa(id)
+    mpa_id INTEGER REFERENCES mpa(id),
+    likes_count INTEGER DEFAULT 0 NOT NULL
     );
 
 -- Связь фильмов и жанров (многие-ко-многим)
@@ -38,18 +46,97 @@ CREATE TABLE IF NOT EXISTS users (
     birthday DATE
     );
 
--- Таблица дружбы
-CREATE TABLE IF NOT EXISTS friendship (
-                                          id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-                                          user_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
-    friend_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
-    status BOOLEAN DEFAULT FALSE,
-    CONSTRAINT friendship_unique UNIQUE (user_id, friend_id)
+-- Перед созданием уникальных индексов разово устраняются дубликаты, накопленные до их появления.
+-- Строку с наименьшим id оставляем как есть, у остальных к логину и email добавляется префикс dup<id>_:
+-- пользователи не удаляются, чтобы не потерять их лайки и дружбу каскадом, а новые значения
+-- остаются уникальными и проходят валидацию логина и email
+UPDATE users u
+SET login = LEFT(CONCAT('dup', u.id, '_', u.login), 50)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'users_unique_dedupe')
+  AND EXISTS (SELECT 1 FROM users d WHERE d.login = u.login AND d.id < u.id);
+
+UPDATE users u
+SET email = LEFT(CONCAT('dup', u.id, '_', u.email), 50)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'users_unique_dedupe')
+  AND EXISTS (SELECT 1 FROM users d WHERE d.email = u.email AND d.id < u.id);
+
+INSERT INTO schema_migrations (name)
+SELECT 'users_unique_dedupe'
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'users_unique_dedupe');
+
+-- Логин и email уникальны; индексы также служат для поиска пользователя
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_uq ON users (login);
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_uq ON users (email);
+
+-- Таблица дружбы: одна строка на пару пользователей, user_low < user_high.
+-- state — битовая маска направлений: 1 — user_low добавил user_high, 2 — наоборот, 3 — дружба подтверждена
+CREATE TABLE IF NOT EXISTS friendship_pairs (
+    user_low INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    user_high INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    state TINYINT NOT NULL,
+    PRIMARY KEY (user_low, user_high),
+    CONSTRAINT friendship_pairs_order CHECK (user_low < user_high),
+    CONSTRAINT friendship_pairs_state CHECK (state BETWEEN 1 AND 3)
     );
 
+-- Обратный поиск по user_high без обращения к строкам таблицы
+CREATE INDEX IF NOT EXISTS friendship_pairs_reverse_idx ON friendship_pairs (user_high, user_low, state);
+
 -- Таблица лайков фильмов
 CREATE TABLE IF NOT EXISTS film_likes (
                                           film_id INTEGER REFERENCES films(id) ON DELETE CASCADE,
     user_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
+    liked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
     PRIMARY KEY (film_id, user_id)
-    );
\ No newline at end of file
+    );
+
+-- Денормализованный счётчик лайков: добавление колонки и разовый пересчёт для баз, созданных до её появления.
+-- Дальше счётчик поддерживается приложением, и полный пересчёт при каждом запуске не нужен
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE films f
+SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'films_likes_count_backfill')
+  AND likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id);
+
+INSERT INTO schema_migrations (name)
+SELECT 'films_likes_count_backfill'
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'films_likes_count_backfill');
+
+-- Индекс для выборки популярных фильмов без группировки по film_likes
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, id DESC);
+
+-- Время лайка для ленты друзей; у лайков, поставленных до появления колонки, — время миграции
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS liked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+-- Последние лайки пользователя читаются диапазоном индекса без сортировки
+CREATE INDEX IF NOT EXISTS film_likes_user_recent_idx ON film_likes (user_id, liked_at DESC, film_id);
+
+-- Отсортированные лайки пользователя читаются только из индекса, без обхода первичного ключа (film_id, user_id)
+CREATE INDEX IF NOT EXISTS film_likes_user_film_idx ON film_likes (user_id, film_id);
+
+-- Разовый перенос дружбы из прежней таблицы friendship (строка на направление) в friendship_pairs.
+-- Пустая таблица создаётся, чтобы скрипт выполнялся и на новых базах, и при повторном запуске.
+-- Уже перенесённые пары пропускаются, поэтому повтор после сбоя между шагами не нарушает первичный ключ.
+-- Прежняя таблица удаляется только после отметки о миграции: при ошибке переноса запуск прерывается
+-- до DROP, и исходные данные сохраняются
+CREATE TABLE IF NOT EXISTS friendship (
+    user_id INTEGER,
+    friend_id INTEGER
+    );
+
+INSERT INTO friendship_pairs (user_low, user_high, state)
+SELECT m.user_low, m.user_high, m.state
+FROM (SELECT LEAST(user_id, friend_id) AS user_low, GREATEST(user_id, friend_id) AS user_high,
+             SUM(CASE WHEN user_id < friend_id THEN 1 ELSE 2 END) AS state
+      FROM friendship
+      WHERE user_id <> friend_id
+      GROUP BY LEAST(user_id, friend_id), GREATEST(user_id, friend_id)) m
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'friendship_pairs_migration')
+  AND NOT EXISTS (SELECT 1 FROM friendship_pairs p WHERE p.user_low = m.user_low AND p.user_high = m.user_high);
+
+INSERT INTO schema_migrations (name)
+SELECT 'friendship_pairs_migration'
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'friendship_pairs_migration');
+
+DROP TABLE IF EXISTS friendship;
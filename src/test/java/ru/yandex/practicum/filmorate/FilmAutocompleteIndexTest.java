@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmLikeMatrix.class, FilmSimilarityIndex.class,
+        UserDbStorage.class, UserRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class,
+        ReferenceDataRegistry.class, FriendGraph.class, FilmAutocompleteIndex.class})
+class FilmAutocompleteIndexTest {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmAutocompleteIndex autocompleteIndex;
+
+    private Film createFilm(String name) {
+        Film film = filmStorage.create(film(name));
+        autocompleteIndex.index(film);
+        return film;
+    }
+
+    private void like(Film film, String login) {
+        User user = userStorage.create(user(login));
+        filmStorage.addLike(film.getId(), user.getId());
+        autocompleteIndex.markDirty(film.getId());
+    }
+
+    @Test
+    @DisplayName("Подсказки по префиксу упорядочены по лайкам после пакетного применения изменений")
+    void testCompletionsRankedByLikesAfterRefresh() {
+        Film matrix = createFilm("Матрица");
+        Film reloaded = createFilm("Матрица: Перезагрузка");
+        Film mother = createFilm("Мать");
+        createFilm("Начало");
+
+        assertThat(autocompleteIndex.complete("мат", 10))
+                .extracting(FilmSuggestion::id)
+                .containsExactly(mother.getId(), reloaded.getId(), matrix.getId());
+
+        like(matrix, "user1");
+        like(matrix, "user2");
+        like(reloaded, "user3");
+        autocompleteIndex.refresh();
+
+        assertThat(autocompleteIndex.complete("МАТ", 10))
+                .extracting(FilmSuggestion::id)
+                .containsExactly(matrix.getId(), reloaded.getId(), mother.getId());
+        assertThat(autocompleteIndex.complete("матрица пере", 10))
+                .containsExactly(new FilmSuggestion(reloaded.getId(), "Матрица: Перезагрузка"));
+        assertThat(autocompleteIndex.complete("мат", 1)).hasSize(1);
+        assertThat(autocompleteIndex.complete("матч", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Переименование и удаление фильма сразу меняют подсказки и совпадают с полным перестроением")
+    void testIndexKeptInSyncWithFilms() {
+        Film film = createFilm("Ёлки");
+        Film other = createFilm("Ёлки 2");
+
+        film.setName("Иван Васильевич меняет профессию");
+        filmStorage.update(film);
+        autocompleteIndex.index(film);
+        assertThat(autocompleteIndex.complete("елки", 10))
+                .extracting(FilmSuggestion::id)
+                .containsExactly(other.getId());
+        assertThat(autocompleteIndex.complete("иван", 10))
+                .extracting(FilmSuggestion::id)
+                .containsExactly(film.getId());
+
+        autocompleteIndex.rebuild();
+        assertThat(autocompleteIndex.complete("иван вас", 10))
+                .extracting(FilmSuggestion::id)
+                .containsExactly(film.getId());
+
+        autocompleteIndex.remove(other.getId());
+        assertThat(autocompleteIndex.complete("елки", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmBatchServiceTest {
+    private static final String VALID = """
+            {"name": "Фильм", "description": "Описание", "releaseDate": "2010-07-16", "duration": 100,
+             "mpa": {"id": 1}}""";
+
+    private FilmService filmService;
+    private FilmBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        filmService = mock(FilmService.class);
+        AtomicInteger ids = new AtomicInteger();
+        when(filmService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Film> films = invocation.getArgument(0);
+            films.forEach(film -> film.setId(ids.incrementAndGet()));
+            return films;
+        });
+        ReferenceDataRegistry referenceData = mock(ReferenceDataRegistry.class);
+        when(referenceData.getMpa(anyInt())).thenReturn(Mpa.builder().id(1).name("G").build());
+
+        batchService = new FilmBatchService(filmService, referenceData, new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    private List<FilmBatchResult> importFilms(String json) {
+        return batchService.importFilms(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Элемент, который не преобразуется в фильм, получает FAILED, остальные сохраняются")
+    void testMalformedElementReportedAsFailed() {
+        String broken = """
+                {"name": "Фильм", "releaseDate": "не дата", "duration": 100, "mpa": {"id": 1}}""";
+
+        List<FilmBatchResult> results = importFilms("[" + VALID + "," + VALID + "," + broken + "," + VALID + "]");
+
+        assertThat(results).extracting(FilmBatchResult::getStatus).containsExactly(
+                FilmBatchResult.Status.CREATED, FilmBatchResult.Status.CREATED,
+                FilmBatchResult.Status.FAILED, FilmBatchResult.Status.CREATED);
+        assertThat(results).extracting(FilmBatchResult::getId).containsExactly(1, 2, null, 3);
+        assertThat(results.get(2).getError()).startsWith("Некорректный фильм");
+    }
+
+    @Test
+    @DisplayName("При синтаксической ошибке возвращаются результаты уже прочитанных элементов")
+    void testSyntaxErrorKeepsCommittedResults() {
+        List<FilmBatchResult> results = importFilms("[" + VALID + "," + VALID + "," + VALID + ", {\"name\": ");
+
+        assertThat(results).extracting(FilmBatchResult::getStatus).containsExactly(
+                FilmBatchResult.Status.CREATED, FilmBatchResult.Status.CREATED,
+                FilmBatchResult.Status.CREATED, FilmBatchResult.Status.FAILED);
+        assertThat(results.get(3).getError()).startsWith("Невалидный JSON");
+    }
+
+    @Test
+    @DisplayName("Ошибка сохранения порции помечает FAILED только её элементы")
+    void testFailedChunkDoesNotDiscardCommittedChunks() {
+        AtomicInteger ids = new AtomicInteger();
+        AtomicInteger chunks = new AtomicInteger();
+        when(filmService.createAll(anyList())).thenAnswer(invocation -> {
+            if (chunks.incrementAndGet() == 2) {
+                throw new DataIntegrityViolationException("ограничение нарушено");
+            }
+            List<Film> films = invocation.getArgument(0);
+            films.forEach(film -> film.setId(ids.incrementAndGet()));
+            return films;
+        });
+
+        List<FilmBatchResult> results = importFilms("[" + String.join(",", Collections.nCopies(5, VALID)) + "]");
+
+        assertThat(results).extracting(FilmBatchResult::getStatus).containsExactly(
+                FilmBatchResult.Status.CREATED, FilmBatchResult.Status.CREATED,
+                FilmBatchResult.Status.FAILED, FilmBatchResult.Status.FAILED,
+                FilmBatchResult.Status.CREATED);
+        assertThat(results).extracting(FilmBatchResult::getId).containsExactly(1, 2, null, null, 3);
+        assertThat(results.get(2).getError()).contains("ограничение нарушено");
+    }
+}
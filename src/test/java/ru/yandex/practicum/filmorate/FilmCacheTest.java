@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+import ru.yandex.practicum.filmorate.service.FilmFeedService;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehind;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FilmCacheTest {
+    private static final int FILM_ID = 1;
+
+    private FilmStorage filmStorage;
+    private FilmCache filmCache;
+    private FilmService filmService;
+    private Film film;
+
+    @BeforeEach
+    void setUp() {
+        Mpa mpa = Mpa.builder().id(1).name("G").build();
+        film = Film.builder()
+                .id(FILM_ID)
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2010, 7, 16))
+                .duration(100)
+                .mpa(mpa)
+                .build();
+
+        filmStorage = mock(FilmStorage.class);
+        when(filmStorage.getById(FILM_ID)).thenReturn(film);
+        when(filmStorage.update(any(Film.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ReferenceDataRegistry referenceData = mock(ReferenceDataRegistry.class);
+        when(referenceData.getMpa(anyInt())).thenReturn(mpa);
+
+        filmCache = new FilmCache(2, Duration.ofMinutes(10));
+        filmService = new FilmService(filmStorage, mock(GenreDbStorage.class), referenceData, filmCache,
+                mock(LikeWriteBehind.class), mock(FilmFeedService.class), mock(FilmSimilarityIndex.class),
+                mock(FilmSearchIndex.class), mock(FilmAutocompleteIndex.class));
+    }
+
+    @Test
+    @DisplayName("Повторное чтение берётся из кэша, а статистика учитывает попадания и промахи")
+    void testCachedReadAndStats() {
+        filmService.getById(FILM_ID);
+        filmService.getById(FILM_ID);
+
+        verify(filmStorage, times(1)).getById(FILM_ID);
+        assertThat(filmCache.getStats())
+                .containsEntry("size", 1L)
+                .containsEntry("hitCount", 1L)
+                .containsEntry("missCount", 1L);
+    }
+
+    @Test
+    @DisplayName("Обновление, лайк, удаление лайка и удаление фильма вытесняют запись из кэша")
+    void testWritesInvalidateEntry() {
+        filmService.getById(FILM_ID);
+        // update сам читает фильм через кэш для проверки существования
+        filmService.update(film);
+        filmService.getById(FILM_ID);
+        verify(filmStorage, times(2)).getById(FILM_ID);
+
+        filmService.addLike(FILM_ID, 1);
+        filmService.getById(FILM_ID);
+        verify(filmStorage, times(3)).getById(FILM_ID);
+
+        filmService.removeLike(FILM_ID, 1);
+        filmService.getById(FILM_ID);
+        verify(filmStorage, times(4)).getById(FILM_ID);
+
+        filmService.delete(FILM_ID);
+        filmService.getById(FILM_ID);
+        verify(filmStorage, times(5)).getById(FILM_ID);
+    }
+
+    @Test
+    @DisplayName("Размер кэша ограничен maximum-size")
+    void testSizeBound() {
+        for (int id = 1; id <= 10; id++) {
+            int filmId = id;
+            filmCache.get(filmId, key -> Film.builder().id(filmId).name("Фильм " + filmId).build());
+        }
+
+        waitFor(() -> (long) filmCache.getStats().get("size") <= 2);
+        assertThat((long) filmCache.getStats().get("evictionCount")).isGreaterThanOrEqualTo(8);
+    }
+
+    // Caffeine вытесняет записи асинхронно, поэтому размер проверяется с ожиданием
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("условие не выполнено за 5 секунд").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -11,12 +12,20 @@ import ru.yandex.practicum.filmorate.controller.FilmController;
 import org.junit.jupiter.api.BeforeEach;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.ValidationGroups;
+import ru.yandex.practicum.filmorate.service.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+import ru.yandex.practicum.filmorate.service.FilmFeedService;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehind;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
-import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Set;
 
@@ -39,9 +48,11 @@ class FilmControllerTest {
     @BeforeEach
     void setUp() {
         InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
-        UserService userService = mock(UserService.class); // Мок, так как не тестируем взаимодействие
-        filmService = new FilmService(filmStorage, userService, mock(GenreDbStorage.class), mock(MpaDbStorage.class));
-        filmController = new FilmController(filmService);
+        filmService = new FilmService(filmStorage, mock(GenreDbStorage.class), mock(ReferenceDataRegistry.class),
+                new FilmCache(100, Duration.ofMinutes(1)), mock(LikeWriteBehind.class),
+                mock(FilmFeedService.class), mock(FilmSimilarityIndex.class), mock(FilmSearchIndex.class),
+                mock(FilmAutocompleteIndex.class));
+        filmController = new FilmController(filmService, mock(FilmBatchService.class), new ObjectMapper());
     }
 
     @Test
@@ -7,29 +7,49 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.PopularityFilter;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.user;
 
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, FilmRowMapper.class, UserDbStorage.class,
-        UserRowMapper.class, GenreDbStorage.class, GenreRowMapper.class})
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmLikeMatrix.class, FilmSimilarityIndex.class,
+        UserDbStorage.class, UserRowMapper.class, GenreDbStorage.class, GenreRowMapper.class,
+        MpaDbStorage.class, ReferenceDataRegistry.class, FriendGraph.class})
 class FilmDbStorageTest {
 
     @Autowired
@@ -38,6 +58,18 @@ class FilmDbStorageTest {
     @Autowired
     private final UserStorage userStorage;
 
+    @Autowired
+    private final GenreDbStorage genreDbStorage;
+
+    @Autowired
+    private final FilmSimilarityIndex similarityIndex;
+
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private final PlatformTransactionManager transactionManager;
+
     private Film createDefaultFilm() {
         return Film.builder()
                 .name("Начало")
@@ -76,6 +108,7 @@ class FilmDbStorageTest {
         assertThat(foundFilm).isNotNull();
         assertThat(foundFilm.getId()).isEqualTo(film.getId());
         assertThat(foundFilm.getName()).isEqualTo(film.getName());
+        assertThat(foundFilm.getMpa().getName()).isEqualTo("G");
     }
 
     @Test
@@ -141,6 +174,7 @@ class FilmDbStorageTest {
 
         Film updatedFilm = filmStorage.getById(film.getId());
         assertThat(updatedFilm).isNotNull();
+        assertThat(updatedFilm.getLikesCount()).isEqualTo(1);
     }
 
     @Test
@@ -154,6 +188,77 @@ class FilmDbStorageTest {
 
         Film updatedFilm = filmStorage.getById(film.getId());
         assertThat(updatedFilm).isNotNull();
+        assertThat(updatedFilm.getLikesCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Повторный лайк не меняет счётчик, лайк несуществующего пользователя — ошибка")
+    void testAddLikeIdempotent() {
+        User user = userStorage.create(createDefaultUser());
+        Film film = filmStorage.create(createDefaultFilm());
+
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), user.getId());
+
+        assertThat(filmStorage.getById(film.getId()).getLikesCount()).isEqualTo(1);
+        assertThatThrownBy(() -> filmStorage.addLike(film.getId(), user.getId() + 1000))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> filmStorage.removeLike(film.getId() + 1000, user.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("ID фильмов, которые лайкнул пользователь, возвращаются по возрастанию")
+    void testGetLikedFilmIds() {
+        User user = userStorage.create(createDefaultUser());
+        Film first = filmStorage.create(createDefaultFilm());
+        Film second = filmStorage.create(createDefaultFilm());
+        filmStorage.create(createDefaultFilm());
+
+        filmStorage.addLike(second.getId(), user.getId());
+        filmStorage.addLike(first.getId(), user.getId());
+
+        assertThat(filmStorage.getLikedFilmIds(user.getId())).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Лайки пользователя выдаются страницами по ID фильма")
+    void testStreamLikedFilmsPage() {
+        User user = userStorage.create(createDefaultUser());
+        List<Film> liked = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = filmStorage.create(createDefaultFilm());
+            filmStorage.addLike(film.getId(), user.getId());
+            liked.add(film);
+        }
+
+        OptionalInt lastId = filmStorage.getLikedPageLastId(user.getId(), 0, 2);
+        List<Film> page = new ArrayList<>();
+        filmStorage.streamLikedFilms(user.getId(), 0, lastId.orElseThrow(), 2, page::add);
+
+        assertThat(lastId).hasValue(liked.get(1).getId());
+        assertThat(page).extracting(Film::getId).containsExactly(liked.get(0).getId(), liked.get(1).getId());
+        assertThat(page.getFirst().getMpa().getName()).isEqualTo("G");
+        assertThat(filmStorage.getLikedPageLastId(user.getId(), lastId.getAsInt(), 2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Пакетная запись лайков пересчитывает счётчики и пропускает несуществующие ID")
+    void testApplyLikes() {
+        User user = userStorage.create(createDefaultUser());
+        Film first = filmStorage.create(createDefaultFilm());
+        Film second = filmStorage.create(createDefaultFilm());
+        filmStorage.addLike(second.getId(), user.getId());
+
+        filmStorage.applyLikes(List.of(
+                new LikeEvent(first.getId(), user.getId(), true),
+                new LikeEvent(first.getId(), user.getId() + 1000, true),
+                new LikeEvent(first.getId() + 1000, user.getId(), true),
+                new LikeEvent(second.getId(), user.getId(), false)));
+
+        assertThat(filmStorage.getById(first.getId()).getLikesCount()).isEqualTo(1);
+        assertThat(filmStorage.getById(second.getId()).getLikesCount()).isZero();
+        assertThat(filmStorage.getPopularFilms(1)).extracting(Film::getId).containsExactly(first.getId());
     }
 
     @Test
@@ -176,4 +281,175 @@ class FilmDbStorageTest {
         assertThat(popularFilms).isNotNull();
         assertThat(popularFilms.size()).isGreaterThan(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Популярные фильмы упорядочены по лайкам и поддерживают смещение")
+    void testGetPopularFilmsOrderAndOffset() {
+        Film first = filmStorage.create(createDefaultFilm());
+        Film second = filmStorage.create(createDefaultFilm());
+        Film third = filmStorage.create(createDefaultFilm());
+        User user1 = userStorage.create(createDefaultUser());
+        User user2 = userStorage.create(User.builder()
+                .email("user2@mail.com")
+                .login("userlogin2")
+                .name("username2")
+                .birthday(LocalDate.of(1999, 12, 7))
+                .build());
+
+        filmStorage.addLike(second.getId(), user1.getId());
+        filmStorage.addLike(second.getId(), user2.getId());
+        filmStorage.addLike(first.getId(), user1.getId());
+
+        assertThat(filmStorage.getPopularFilms(3))
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId(), third.getId());
+        assertThat(filmStorage.getPopularFilms(1, 1))
+                .extracting(Film::getId)
+                .containsExactly(first.getId());
+
+        filmStorage.removeLike(second.getId(), user1.getId());
+        filmStorage.removeLike(second.getId(), user2.getId());
+
+        assertThat(filmStorage.getPopularFilms(3))
+                .extracting(Film::getId)
+                .containsExactly(first.getId(), third.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Постраничное получение фильмов по курсору")
+    void testGetFilmsPage() {
+        Film first = filmStorage.create(createDefaultFilm());
+        Film second = filmStorage.create(createDefaultFilm());
+        Film third = filmStorage.create(createDefaultFilm());
+
+        List<Film> firstPage = filmStorage.getPage(first.getId() - 1, 2);
+        List<Film> secondPage = filmStorage.getPage(firstPage.getLast().getId(), 2);
+
+        assertThat(firstPage).extracting(Film::getId).containsExactly(first.getId(), second.getId());
+        assertThat(secondPage).extracting(Film::getId).containsExactly(third.getId());
+    }
+
+    @Test
+    @DisplayName("Потоковая выгрузка фильмов вместе с жанрами")
+    void testStreamAllFilms() {
+        Film first = filmStorage.create(createDefaultFilm());
+        Film second = filmStorage.create(createDefaultFilm());
+        genreDbStorage.addFilmGenres(second.getId(), Set.of(new Genre(1, null), new Genre(2, null)));
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+
+        assertThat(streamed).extracting(Film::getId).containsExactly(first.getId(), second.getId());
+        assertThat(streamed.getFirst().getGenres()).isEmpty();
+        assertThat(streamed.getLast().getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("Пакетное создание фильмов")
+    void testCreateAllFilms() {
+        List<Film> created = filmStorage.createAll(List.of(createDefaultFilm(), createDefaultFilm()));
+
+        assertThat(created).extracting(Film::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(filmStorage.getByIds(created.stream().map(Film::getId).toList()))
+                .extracting(Film::getName)
+                .containsExactly("Начало", "Начало");
+    }
+
+    @Test
+    @DisplayName("Похожие фильмы ищутся по совпадению лайкнувших и обновляются при снятии лайка")
+    void testFindSimilarFilms() {
+        Film film = filmStorage.create(createDefaultFilm());
+        Film sameAudience = filmStorage.create(createDefaultFilm());
+        Film otherAudience = filmStorage.create(createDefaultFilm());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            users.add(userStorage.create(user("similar" + i)));
+        }
+        for (User user : users.subList(0, 3)) {
+            filmStorage.addLike(film.getId(), user.getId());
+            filmStorage.addLike(sameAudience.getId(), user.getId());
+        }
+        filmStorage.addLike(otherAudience.getId(), users.get(3).getId());
+
+        assertThat(similarityIndex.findSimilar(film.getId(), 10)).containsExactly(sameAudience.getId());
+
+        for (User user : users.subList(0, 3)) {
+            filmStorage.removeLike(sameAudience.getId(), user.getId());
+        }
+        assertThat(similarityIndex.findSimilar(film.getId(), 10)).isEmpty();
+
+        // Устаревший фильм не пересчитывается при поиске, только по расписанию
+        for (User user : users.subList(0, 3)) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)",
+                    sameAudience.getId(), user.getId());
+        }
+        similarityIndex.markStale(sameAudience.getId());
+        assertThat(similarityIndex.findSimilar(film.getId(), 10)).isEmpty();
+        similarityIndex.refreshStale();
+        assertThat(similarityIndex.findSimilar(film.getId(), 10)).containsExactly(sameAudience.getId());
+    }
+
+    // Лайк и пересчёт идут на разных соединениях, поэтому тест работает без общей транзакции
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Пересчёт, не увидевший незафиксированный лайк, исправляется после коммита лайка")
+    void testSimilarityRecomputeDoesNotLoseUncommittedLike() {
+        Film film = filmStorage.create(createDefaultFilm());
+        Film liked = filmStorage.create(createDefaultFilm());
+        User user = userStorage.create(user("race"));
+        try {
+            filmStorage.addLike(film.getId(), user.getId());
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                filmStorage.addLike(liked.getId(), user.getId());
+                // Пересчёт из другого потока читает базу без незафиксированного лайка и затирает сигнатуру
+                Thread recompute = new Thread(() -> similarityIndex.recompute(Set.of(liked.getId())));
+                recompute.start();
+                try {
+                    recompute.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertThat(similarityIndex.findSimilar(film.getId(), 10)).isEmpty();
+
+            similarityIndex.refreshStale();
+            assertThat(similarityIndex.findSimilar(film.getId(), 10)).containsExactly(liked.getId());
+        } finally {
+            filmStorage.delete(film.getId());
+            filmStorage.delete(liked.getId());
+            userStorage.delete(user.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы с фильтрами по жанру, рейтингу и году")
+    void testGetPopularFilmsFiltered() {
+        User user = userStorage.create(createDefaultUser());
+        Film drama2010 = createDefaultFilm();
+        drama2010.setGenres(Set.of(new Genre(2, null)));
+        drama2010 = filmStorage.create(drama2010);
+        Film drama2008 = createDefaultFilm();
+        drama2008.setGenres(Set.of(new Genre(2, null)));
+        drama2008.setReleaseDate(LocalDate.of(2008, 7, 18));
+        drama2008 = filmStorage.create(drama2008);
+        Film comedy2010 = createDefaultFilm();
+        comedy2010.setGenres(Set.of(new Genre(1, null)));
+        comedy2010.setMpa(Mpa.builder().id(2).build());
+        comedy2010 = filmStorage.create(comedy2010);
+        filmStorage.addLike(drama2008.getId(), user.getId());
+
+        assertThat(filmStorage.getPopularFilms(10, 0, new PopularityFilter(2, null, null)))
+                .extracting(Film::getId)
+                .containsExactly(drama2008.getId(), drama2010.getId());
+        assertThat(filmStorage.getPopularFilms(10, 0, new PopularityFilter(2, 1, 2010)))
+                .extracting(Film::getId)
+                .containsExactly(drama2010.getId());
+        assertThat(filmStorage.getPopularFilms(10, 0, new PopularityFilter(null, 2, 2008))).isEmpty();
+
+        comedy2010.setReleaseDate(LocalDate.of(2008, 1, 1));
+        filmStorage.update(comedy2010);
+        assertThat(filmStorage.getPopularFilms(10, 0, new PopularityFilter(null, 2, 2008)))
+                .extracting(Film::getId)
+                .containsExactly(comedy2010.getId());
+    }
+}
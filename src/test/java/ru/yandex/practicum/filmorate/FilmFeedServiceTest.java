@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmFeedService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmLikeMatrix.class, FilmSimilarityIndex.class,
+        UserDbStorage.class, UserRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class,
+        ReferenceDataRegistry.class, FriendGraph.class, FilmFeedService.class})
+class FilmFeedServiceTest {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmFeedService feedService;
+
+    @Test
+    @DisplayName("Лента друзей упорядочена по числу друзей, которым понравился фильм")
+    void testFeedRankedByFriendLikes() {
+        User user = userStorage.create(user("user"));
+        User friend1 = userStorage.create(user("friend1"));
+        User friend2 = userStorage.create(user("friend2"));
+        User stranger = userStorage.create(user("stranger"));
+        Film likedByOne = filmStorage.create(film("Один лайк"));
+        Film likedByTwo = filmStorage.create(film("Два лайка"));
+        Film likedByStranger = filmStorage.create(film("Лайк не друга"));
+        userStorage.addFriend(user.getId(), friend1.getId());
+        userStorage.addFriend(user.getId(), friend2.getId());
+
+        filmStorage.addLike(likedByOne.getId(), friend1.getId());
+        filmStorage.addLike(likedByTwo.getId(), friend1.getId());
+        filmStorage.addLike(likedByTwo.getId(), friend2.getId());
+        filmStorage.addLike(likedByStranger.getId(), stranger.getId());
+
+        assertThat(feedService.getFeed(user.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(likedByTwo.getId(), likedByOne.getId());
+    }
+}
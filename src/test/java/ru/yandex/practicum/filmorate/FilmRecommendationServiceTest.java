@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmLikeMatrix.class, FilmSimilarityIndex.class,
+        UserDbStorage.class, UserRowMapper.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class,
+        ReferenceDataRegistry.class, FriendGraph.class, FilmRecommendationService.class})
+class FilmRecommendationServiceTest {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmLikeMatrix likeMatrix;
+    private final FilmRecommendationService recommendationService;
+
+    @Test
+    @DisplayName("Рекомендации упорядочены по числу совместных лайков и не содержат уже лайкнутых фильмов")
+    void testRecommendationsRankedByCoLikes() {
+        User user = userStorage.create(user("user"));
+        User other1 = userStorage.create(user("other1"));
+        User other2 = userStorage.create(user("other2"));
+        Film seen = filmStorage.create(film("Просмотренный"));
+        Film coLikedTwice = filmStorage.create(film("Два совместных лайка"));
+        Film coLikedOnce = filmStorage.create(film("Один совместный лайк"));
+        Film unrelated = filmStorage.create(film("Без связи"));
+
+        filmStorage.addLike(seen.getId(), user.getId());
+        filmStorage.addLike(seen.getId(), other1.getId());
+        filmStorage.addLike(seen.getId(), other2.getId());
+        filmStorage.addLike(coLikedTwice.getId(), other1.getId());
+        filmStorage.addLike(coLikedTwice.getId(), other2.getId());
+        filmStorage.addLike(coLikedOnce.getId(), other1.getId());
+        filmStorage.addLike(unrelated.getId(), userStorage.create(user("stranger")).getId());
+        likeMatrix.awaitRowUpdates();
+
+        assertThat(recommendationService.getRecommendations(user.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(coLikedTwice.getId(), coLikedOnce.getId());
+    }
+
+    @Test
+    @DisplayName("Матрица обновляется при снятии лайка, пакетной записи и совпадает с полным перестроением")
+    void testMatrixKeptInSyncWithLikes() {
+        User user = userStorage.create(user("user"));
+        User other = userStorage.create(user("other"));
+        Film seen = filmStorage.create(film("Просмотренный"));
+        Film candidate = filmStorage.create(film("Кандидат"));
+
+        filmStorage.addLike(seen.getId(), user.getId());
+        filmStorage.applyLikes(List.of(
+                new LikeEvent(seen.getId(), other.getId(), true),
+                new LikeEvent(candidate.getId(), other.getId(), true)));
+        likeMatrix.awaitRowUpdates();
+        assertThat(recommendationService.getRecommendations(user.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(candidate.getId());
+
+        likeMatrix.rebuild();
+        assertThat(recommendationService.getRecommendations(user.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(candidate.getId());
+
+        filmStorage.removeLike(seen.getId(), other.getId());
+        likeMatrix.awaitRowUpdates();
+        assertThat(recommendationService.getRecommendations(user.getId(), 10)).isEmpty();
+        assertThat(likeMatrix.getLikedFilms(other.getId())).containsExactly(candidate.getId());
+    }
+
+    @Test
+    @DisplayName("Удалённый фильм сразу пропадает из матрицы и рекомендаций")
+    void testDeletedFilmRemovedFromMatrix() {
+        User user = userStorage.create(user("user"));
+        User other = userStorage.create(user("other"));
+        Film seen = filmStorage.create(film("Просмотренный"));
+        Film deleted = filmStorage.create(film("Удалённый"));
+        Film kept = filmStorage.create(film("Оставшийся"));
+
+        filmStorage.addLike(seen.getId(), user.getId());
+        filmStorage.addLike(seen.getId(), other.getId());
+        filmStorage.addLike(deleted.getId(), other.getId());
+        filmStorage.addLike(deleted.getId(), user.getId());
+        filmStorage.addLike(kept.getId(), other.getId());
+
+        filmStorage.delete(deleted.getId());
+        likeMatrix.awaitRowUpdates();
+
+        assertThat(likeMatrix.getLikedFilms(other.getId())).containsExactly(seen.getId(), kept.getId());
+        assertThat(likeMatrix.scoreUnseen(user.getId()).get(kept.getId())).isEqualTo(1);
+        assertThat(recommendationService.getRecommendations(user.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(kept.getId());
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikeMatrix;
+import ru.yandex.practicum.filmorate.storage.film.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mappers.GenreRowMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, FilmRowMapper.class, FilmLikeMatrix.class, FilmSimilarityIndex.class,
+        GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class, ReferenceDataRegistry.class,
+        FilmSearchIndex.class})
+class FilmSearchIndexTest {
+    private final FilmStorage filmStorage;
+    private final FilmSearchIndex searchIndex;
+
+    private Film createFilm(String name, String description) {
+        Film film = filmStorage.create(film(name, description));
+        searchIndex.index(film);
+        return film;
+    }
+
+    @Test
+    @DisplayName("Найдены только фильмы со всеми словами запроса, совпадение в названии ранжируется выше")
+    void testSearchMatchesAllTermsAndRanksNameHigher() {
+        Film inDescription = createFilm("Сон", "Шпионы крадут идеи во сне, начало истории");
+        Film inName = createFilm("Начало", "Шпионы внутри снов");
+        createFilm("Начало конца", "Драма о семье");
+
+        assertThat(searchIndex.search("ШПИОНЫ начало", 10))
+                .containsExactly(inName.getId(), inDescription.getId());
+        assertThat(searchIndex.search("шпионы кошки", 10)).isEmpty();
+        assertThat(searchIndex.search("начало", 1)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Буква «ё» и знаки препинания не влияют на поиск")
+    void testSearchNormalizesText() {
+        Film film = createFilm("Ёлки", "Новогодняя комедия, «ирония» судьбы");
+
+        assertThat(searchIndex.search("елки", 10)).containsExactly(film.getId());
+        assertThat(searchIndex.search("  Ирония!!! ", 10)).containsExactly(film.getId());
+        assertThat(searchIndex.search("?!", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Индекс обновляется при изменении и удалении фильма и совпадает с полным перестроением")
+    void testIndexKeptInSyncWithFilms() {
+        Film film = createFilm("Матрица", "Избранный сражается с машинами");
+
+        film.setName("Матрица: Перезагрузка");
+        film.setDescription("Продолжение");
+        filmStorage.update(film);
+        searchIndex.index(film);
+        assertThat(searchIndex.search("перезагрузка", 10)).containsExactly(film.getId());
+        assertThat(searchIndex.search("машинами", 10)).isEmpty();
+
+        searchIndex.rebuild();
+        assertThat(searchIndex.search("матрица продолжение", 10)).containsExactly(film.getId());
+
+        searchIndex.remove(film.getId());
+        assertThat(searchIndex.search("матрица", 10)).isEmpty();
+    }
+}
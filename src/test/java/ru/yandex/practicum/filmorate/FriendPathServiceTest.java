@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.SearchLimitExceededException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendPathService;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({UserDbStorage.class, UserRowMapper.class, FriendGraph.class, FriendPathService.class})
+class FriendPathServiceTest {
+    private final UserStorage userStorage;
+    private final FriendGraph friendGraph;
+    private final FriendPathService pathService;
+
+    @Test
+    @DisplayName("Находится кратчайшая цепочка друзей")
+    void testFindShortestPath() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+        User d = userStorage.create(user("d"));
+        User e = userStorage.create(user("e"));
+        // Длинный путь a -> b -> c -> d -> e и короткий a -> c -> e
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.addFriend(b.getId(), c.getId());
+        userStorage.addFriend(c.getId(), d.getId());
+        userStorage.addFriend(d.getId(), e.getId());
+        userStorage.addFriend(a.getId(), c.getId());
+        userStorage.addFriend(c.getId(), e.getId());
+
+        assertThat(pathService.findPath(a.getId(), e.getId(), 6))
+                .extracting(User::getId)
+                .containsExactly(a.getId(), c.getId(), e.getId());
+    }
+
+    @Test
+    @DisplayName("Путь длиннее допустимой глубины не находится")
+    void testPathLongerThanMaxDepth() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.addFriend(b.getId(), c.getId());
+
+        assertThat(pathService.findPath(a.getId(), c.getId(), 2)).hasSize(3);
+        assertThatThrownBy(() -> pathService.findPath(a.getId(), c.getId(), 1))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> pathService.findPath(c.getId(), a.getId(), 6))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Лимит обхода проверяется внутри уровня и отличается от отсутствия пути")
+    void testVisitLimitExceededWithinLevel() {
+        User hub = userStorage.create(user("hub"));
+        User target = userStorage.create(user("target"));
+        for (int i = 0; i < 5; i++) {
+            userStorage.addFriend(hub.getId(), userStorage.create(user("friend" + i)).getId());
+        }
+        FriendPathService limited = new FriendPathService(friendGraph, userStorage, 3);
+
+        assertThatThrownBy(() -> limited.findPath(hub.getId(), target.getId(), 6))
+                .isInstanceOf(SearchLimitExceededException.class);
+        assertThatThrownBy(() -> pathService.findPath(hub.getId(), target.getId(), 6))
+                .isInstanceOf(NotFoundException.class);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({UserDbStorage.class, UserRowMapper.class, FriendGraph.class, FriendSuggestionService.class})
+class FriendSuggestionServiceTest {
+    private final UserStorage userStorage;
+    private final FriendSuggestionService suggestionService;
+
+    @Test
+    @DisplayName("Рекомендации упорядочены по числу общих друзей и не содержат текущих друзей")
+    void testSuggestionsRankedByMutualFriends() {
+        User user = userStorage.create(user("user"));
+        User friend1 = userStorage.create(user("friend1"));
+        User friend2 = userStorage.create(user("friend2"));
+        User twoMutual = userStorage.create(user("twoMutual"));
+        User oneMutual = userStorage.create(user("oneMutual"));
+
+        userStorage.addFriend(user.getId(), friend1.getId());
+        userStorage.addFriend(user.getId(), friend2.getId());
+        userStorage.addFriend(friend1.getId(), oneMutual.getId());
+        userStorage.addFriend(friend1.getId(), twoMutual.getId());
+        userStorage.addFriend(friend2.getId(), twoMutual.getId());
+        userStorage.addFriend(friend2.getId(), friend1.getId());
+        userStorage.addFriend(friend1.getId(), user.getId());
+
+        assertThat(suggestionService.getSuggestions(user.getId(), 10))
+                .extracting(User::getId)
+                .containsExactly(twoMutual.getId(), oneMutual.getId());
+    }
+
+    @Test
+    @DisplayName("Новая дружба сбрасывает рекомендации пользователя")
+    void testSuggestionsInvalidatedOnFriendChange() {
+        User user = userStorage.create(user("user"));
+        User friend = userStorage.create(user("friend"));
+        User candidate = userStorage.create(user("candidate"));
+        userStorage.addFriend(friend.getId(), candidate.getId());
+
+        assertThat(suggestionService.getSuggestions(user.getId(), 10)).isEmpty();
+
+        userStorage.addFriend(user.getId(), friend.getId());
+        suggestionService.invalidate(user.getId());
+
+        assertThat(suggestionService.getSuggestions(user.getId(), 10))
+                .extracting(User::getId)
+                .containsExactly(candidate.getId());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FriendshipDbStorage.class, UserDbStorage.class, UserRowMapper.class, FriendGraph.class})
+class FriendshipDbStorageTest {
+    private final FriendshipDbStorage friendshipStorage;
+    private final UserStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Integer pairState(User first, User second) {
+        return jdbcTemplate.query("SELECT state FROM friendship_pairs WHERE user_low = ? AND user_high = ?",
+                        (rs, rowNum) -> rs.getInt("state"),
+                        Math.min(first.getId(), second.getId()), Math.max(first.getId(), second.getId()))
+                .stream().findFirst().orElse(null);
+    }
+
+    @Test
+    @DisplayName("Взаимная дружба хранится одной строкой")
+    void testMutualFriendshipStoredOnce() {
+        User user = userStorage.create(user("user"));
+        User friend = userStorage.create(user("friend"));
+
+        friendshipStorage.addFriendship(friend.getId(), user.getId());
+        friendshipStorage.acceptFriendship(user.getId(), friend.getId());
+
+        assertThat(pairState(user, friend)).isEqualTo(3);
+        assertThat(friendshipStorage.getFriends(user.getId())).extracting(User::getId).containsExactly(friend.getId());
+        assertThat(friendshipStorage.getFriends(friend.getId())).extracting(User::getId).containsExactly(user.getId());
+
+        friendshipStorage.removeFriendship(user.getId(), friend.getId());
+
+        assertThat(pairState(user, friend)).isEqualTo(friend.getId() < user.getId() ? 1 : 2);
+        assertThat(friendshipStorage.getFriends(user.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Отклонение заявки удаляет строку, принять отсутствующую заявку нельзя")
+    void testDeclineFriendRequest() {
+        User user = userStorage.create(user("user"));
+        User requester = userStorage.create(user("requester"));
+        friendshipStorage.addFriendship(requester.getId(), user.getId());
+
+        friendshipStorage.declineFriendship(user.getId(), requester.getId());
+
+        assertThat(pairState(user, requester)).isNull();
+        assertThat(friendshipStorage.getFriends(requester.getId())).isEmpty();
+        assertThatThrownBy(() -> friendshipStorage.acceptFriendship(user.getId(), requester.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehind;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LikeWriteBehindTest {
+    private final LikeWriteBehind writeBehind = new LikeWriteBehind(true, 16, 100,
+            Duration.ofMillis(1), Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.stop();
+    }
+
+    @Test
+    @DisplayName("Пакет повторяется после ошибки записи, а исчерпавший попытки — учитывается как потерянный")
+    void testFailedBatchRetriedThenCounted() {
+        AtomicInteger calls = new AtomicInteger();
+        List<LikeEvent> written = new CopyOnWriteArrayList<>();
+        writeBehind.setHandler(events -> {
+            int call = calls.incrementAndGet();
+            if (call == 1 || call >= 3) {
+                throw new IllegalStateException("БД недоступна");
+            }
+            written.addAll(events);
+        });
+        writeBehind.start();
+
+        writeBehind.submit(new LikeEvent(1, 2, true));
+        waitFor(() -> written.size() == 1);
+        writeBehind.submit(new LikeEvent(3, 4, true));
+        waitFor(() -> (long) writeBehind.getStats().get("droppedEvents") == 1);
+
+        assertThat(written).containsExactly(new LikeEvent(1, 2, true));
+        assertThat(writeBehind.getStats())
+                .containsEntry("writtenEvents", 1L)
+                .containsEntry("retriedBatches", 3L)
+                .containsEntry("droppedEvents", 1L);
+    }
+
+    @Test
+    @DisplayName("События с неположительными ID отклоняются до постановки в буфер")
+    void testNonPositiveIdsRejected() {
+        writeBehind.setHandler(events -> {
+        });
+        writeBehind.start();
+
+        assertThatThrownBy(() -> writeBehind.submit(new LikeEvent(1, -1, true)))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> writeBehind.submit(new LikeEvent(0, 1, true)))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("условие не выполнено за 5 секунд").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
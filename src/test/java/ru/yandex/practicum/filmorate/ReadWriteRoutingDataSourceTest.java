@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.config.ReadWriteRoutingDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadWriteRoutingDataSourceTest {
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    private EmbeddedDatabase createDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        new JdbcTemplate(database).execute("CREATE TABLE source (name VARCHAR(20))");
+        new JdbcTemplate(database).update("INSERT INTO source VALUES (?)", name);
+        return database;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = createDatabase("primary");
+        replica = createDatabase("replica");
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replica);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    private String currentSource() {
+        return jdbcTemplate.queryForObject("SELECT name FROM source", String.class);
+    }
+
+    @Test
+    @DisplayName("Транзакция только для чтения выполняется на реплике")
+    void testReadOnlyTransactionUsesReplica() {
+        transactionTemplate.setReadOnly(true);
+
+        String source = transactionTemplate.execute(status -> currentSource());
+
+        assertThat(source).isEqualTo("replica");
+        assertThat(routingDataSource.getStats()).containsEntry("replicaConnections", 1L);
+    }
+
+    @Test
+    @DisplayName("Запись и запросы вне транзакции выполняются на основной базе")
+    void testWritesUsePrimary() {
+        String source = transactionTemplate.execute(status -> currentSource());
+
+        assertThat(source).isEqualTo("primary");
+        assertThat(currentSource()).isEqualTo("primary");
+        assertThat(routingDataSource.getStats()).containsEntry("replicaConnections", 0L);
+    }
+
+    @Test
+    @DisplayName("Внутри onPrimary транзакция только для чтения выполняется на основной базе")
+    void testOnPrimaryOverridesReadOnly() {
+        transactionTemplate.setReadOnly(true);
+
+        String source = ReadWriteRoutingDataSource.onPrimary(
+                () -> transactionTemplate.execute(status -> currentSource()));
+
+        String afterwards = transactionTemplate.execute(status -> currentSource());
+
+        assertThat(source).isEqualTo("primary");
+        assertThat(afterwards).isEqualTo("replica");
+    }
+}
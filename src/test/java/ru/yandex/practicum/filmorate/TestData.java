@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Общие заготовки моделей для тестов хранилищ и сервисов. Email и имя пользователя
+ * выводятся из логина, поэтому разные логины не конфликтуют по уникальным полям.
+ */
+final class TestData {
+    private TestData() {
+    }
+
+    static User user(String login) {
+        return User.builder()
+                .email(login + "@email.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1999, 12, 7))
+                .build();
+    }
+
+    static Film film(String name) {
+        return film(name, "Описание");
+    }
+
+    static Film film(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2010, 7, 16))
+                .duration(120)
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -12,7 +13,12 @@ import org.junit.jupiter.api.BeforeEach;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.ValidationGroups;
+import ru.yandex.practicum.filmorate.service.FilmFeedService;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendPathService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
@@ -38,8 +44,10 @@ class UserControllerTest {
     void setUp() {
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
         FriendshipStorage friendshipStorage = mock(FriendshipStorage.class); // Мок, так как не тестируем БД
-        userService = new UserService(userStorage, friendshipStorage);
-        userController = new UserController(userService);
+        userService = new UserService(userStorage, friendshipStorage, new InMemoryFilmStorage(),
+                mock(FriendSuggestionService.class), mock(FriendPathService.class), mock(FilmFeedService.class),
+                mock(FilmRecommendationService.class));
+        userController = new UserController(userService, new ObjectMapper());
     }
 
     @Test
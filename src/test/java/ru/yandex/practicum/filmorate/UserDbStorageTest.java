@@ -8,10 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserLookupIndex;
 import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
 
 import java.time.LocalDate;
@@ -23,7 +26,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, UserRowMapper.class})
+@Import({UserDbStorage.class, UserRowMapper.class, FriendGraph.class, UserLookupIndex.class})
 class UserDbStorageTest {
 
     @Autowired
@@ -207,4 +210,83 @@ class UserDbStorageTest {
         assertThat(friends).extracting(User::getEmail)
                 .containsExactlyInAnyOrder("friend1@email.com", "friend2@email.com");
     }
+
+    @Test
+    @DisplayName("Повторное добавление в друзья не создаёт дубликат")
+    void testAddFriendTwiceShouldKeepSingleFriendship() {
+        User user = userStorage.create(defaultUser);
+        User friend = userStorage.create(User.builder()
+                .email("friend@email.com")
+                .login("friend")
+                .name("Friend")
+                .birthday(LocalDate.of(1999, 12, 7))
+                .build());
+
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+
+        assertThat(userStorage.getFriends(user.getId())).extracting(User::getId).containsExactly(friend.getId());
+    }
+
+    @Test
+    @DisplayName("Удалённый пользователь пропадает из списков друзей")
+    void testDeleteUserShouldRemoveFromFriends() {
+        User user = userStorage.create(defaultUser);
+        User friend = userStorage.create(User.builder()
+                .email("friend@email.com")
+                .login("friend")
+                .name("Friend")
+                .birthday(LocalDate.of(1999, 12, 7))
+                .build());
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(friend.getId(), user.getId());
+
+        userStorage.delete(friend.getId());
+
+        assertThat(userStorage.getFriends(user.getId())).isEmpty();
+        assertThat(userStorage.getCommonFriends(user.getId(), friend.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Постраничное получение пользователей по курсору")
+    void testGetUsersPageShouldReturnUsersAfterCursor() {
+        User user1 = userStorage.create(defaultUser);
+        User user2 = userStorage.create(User.builder()
+                .email("user2@email.com")
+                .login("login2")
+                .name("UserName2")
+                .birthday(LocalDate.of(1999, 12, 7))
+                .build());
+
+        List<User> firstPage = userStorage.getPage(0, 1);
+        List<User> secondPage = userStorage.getPage(firstPage.getLast().getId(), 1);
+
+        assertThat(firstPage).extracting(User::getId).containsExactly(user1.getId());
+        assertThat(secondPage).extracting(User::getId).containsExactly(user2.getId());
+    }
+
+    @Test
+    @DisplayName("Поиск пользователя по логину и email")
+    void testGetByLoginAndEmail() {
+        User createdUser = userStorage.create(defaultUser);
+        createdUser.setLogin("login2");
+        userStorage.update(createdUser);
+
+        assertEquals(createdUser.getId(), userStorage.getByLogin("login2").getId());
+        assertEquals(createdUser.getId(), userStorage.getByEmail("user@email.com").getId());
+        assertThrows(NotFoundException.class, () -> userStorage.getByLogin("login1"));
+    }
+
+    @Test
+    @DisplayName("Повторный логин отклоняется")
+    void testCreateUserWithDuplicateLoginShouldThrow() {
+        userStorage.create(defaultUser);
+        User duplicate = User.builder()
+                .email("other@email.com")
+                .login("login1")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+
+        assertThrows(ConflictException.class, () -> userStorage.create(duplicate));
+    }
 }
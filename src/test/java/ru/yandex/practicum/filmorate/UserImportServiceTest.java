@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmFeedService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.UserImportService;
+import ru.yandex.practicum.filmorate.service.UserImportService.RejectReason;
+import ru.yandex.practicum.filmorate.storage.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserImportStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+// Части пишутся в собственных транзакциях из потоков импорта, поэтому тест работает без общей транзакции
+@JdbcTest(properties = {"filmorate.import.chunk-size=64B", "filmorate.import.threads=4"})
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({UserImportService.class, UserImportStorage.class, UserDbStorage.class, UserRowMapper.class,
+        FriendGraph.class})
+class UserImportServiceTest {
+    private static final int FIRST_ID = 900_001;
+
+    private final UserImportService importService;
+    private final UserStorage userStorage;
+    private final FriendGraph friendGraph;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private FriendSuggestionService friendSuggestionService;
+    @MockBean
+    private FilmFeedService filmFeedService;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+        friendGraph.load();
+    }
+
+    @Test
+    @DisplayName("Импорт пользователей и связей частями в несколько потоков")
+    void testImportUsersAndFriendships() throws IOException {
+        // Пользователь, созданный приложением до импорта, с ID из диапазона файла
+        jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                FIRST_ID + 7, "app@mail.com", "app", "Из приложения", LocalDate.of(1990, 1, 1));
+        StringBuilder users = new StringBuilder("id,email,login,name,birthday\n");
+        for (int i = 0; i < 20; i++) {
+            users.append(FIRST_ID + i).append(",u").append(i).append("@mail.com,u").append(i)
+                    .append(",\"Name, ").append(i).append("\",2000-01-01\r\n");
+        }
+        users.append("broken line\n");
+        users.append(FIRST_ID + 30).append(",other@mail.com,app,Name,2000-01-01\n");
+        users.append(FIRST_ID + 99).append(",nobirthday@mail.com,nobirthday,Name,\n");
+        Path usersFile = Files.writeString(dir.resolve("users.csv"), users);
+        Path friendsFile = Files.writeString(dir.resolve("friends.csv"), """
+                user_id,friend_id
+                900001,900002
+                900002,900001
+                900001,900003
+                900004,900001
+                900001,900008
+                """);
+
+        UserImportService.ImportReport userReport = importService.importUsers(usersFile);
+        UserImportService.ImportReport friendReport = importService.importFriendships(friendsFile);
+        importService.reloadIndexes();
+
+        assertThat(userReport.chunks()).isGreaterThan(1);
+        assertThat(userReport.rows()).isEqualTo(19);
+        assertThat(userReport.failedChunks()).isZero();
+        assertThat(userReport.rejectedByReason())
+                .containsEntry(RejectReason.MALFORMED, 2L)
+                .containsEntry(RejectReason.DUPLICATE_ID, 1L)
+                .containsEntry(RejectReason.DUPLICATE_LOGIN_OR_EMAIL, 1L);
+        assertThat(userReport.rejected()).isEqualTo(4);
+        assertThat(friendReport.rows()).isEqualTo(4);
+        assertThat(friendReport.rejectedByReason()).containsEntry(RejectReason.UNKNOWN_USER, 1L);
+        assertThat(friendReport.failedChunks()).isZero();
+        assertThat(userStorage.getById(FIRST_ID + 5).getName()).isEqualTo("Name, 5");
+        assertThat(userStorage.getById(FIRST_ID + 7).getName()).isEqualTo("Из приложения");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id IN (?, ?)",
+                Integer.class, FIRST_ID + 30, FIRST_ID + 99)).isZero();
+        assertThat(friendGraph.getFollowers(FIRST_ID + 7)).isEmpty();
+        assertThat(friendGraph.getFriends(FIRST_ID)).containsExactly(FIRST_ID + 1, FIRST_ID + 2);
+        assertThat(friendGraph.getFollowers(FIRST_ID)).containsExactly(FIRST_ID + 1, FIRST_ID + 3);
+        assertThat(jdbcTemplate.queryForList("SELECT state FROM friendship_pairs WHERE user_low = ?",
+                Integer.class, FIRST_ID)).containsExactlyInAnyOrderElementsOf(List.of(3, 1, 2));
+        assertThat(userStorage.create(User.builder()
+                .email("new@mail.com")
+                .login("new")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build()).getId())
+                .isEqualTo(FIRST_ID + 20);
+        verify(friendSuggestionService).invalidateAll();
+        verify(filmFeedService).invalidateAll();
+    }
+}